@@ -0,0 +1,59 @@
+package io.deki.dsdn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Outcome of a compilation, including every diagnostic reported by the compiler.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class CompilationResult {
+
+  /**
+   * Whether or not the compiler finished without errors
+   */
+  private final boolean success;
+
+  /**
+   * Errors, warnings and notes reported by the compiler, in the order they were reported
+   */
+  private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+  public CompilationResult(boolean success,
+      List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+    this.success = success;
+    this.diagnostics = Collections.unmodifiableList(new ArrayList<>(diagnostics));
+  }
+
+  public boolean isSuccess() {
+    return success;
+  }
+
+  public List<Diagnostic<? extends JavaFileObject>> getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * @return Only the diagnostics of kind {@link Diagnostic.Kind#ERROR}
+   */
+  public List<Diagnostic<? extends JavaFileObject>> getErrors() {
+    List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors.add(diagnostic);
+      }
+    }
+    return errors;
+  }
+
+  @Override
+  public String toString() {
+    return "CompilationResult(success=" + success + ", diagnostics=" + diagnostics.size() + ")";
+  }
+
+}
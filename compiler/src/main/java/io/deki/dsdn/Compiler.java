@@ -1,13 +1,49 @@
 package io.deki.dsdn;
 
+import io.deki.dsdn.cache.ArtifactCache;
+import io.deki.dsdn.compile.BuildManifest;
+import io.deki.dsdn.compile.ClassFileInfo;
+import io.deki.dsdn.compile.FileManagerPool;
+import io.deki.dsdn.compile.LibraryCache;
+import io.deki.dsdn.compile.LibraryFileManager;
+import io.deki.dsdn.compile.LibraryIndex;
+import io.deki.dsdn.compile.MemoryFileManager;
+import io.deki.dsdn.compile.PackageGraph;
+import io.deki.dsdn.compile.SourceIndexer;
+import io.deki.dsdn.compile.TrackingFileManager;
+import io.deki.dsdn.jar.JarWriter;
 import io.deki.dsdn.util.ProcessUtil;
+import io.deki.dsdn.workspace.WorkspaceManager;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import org.apache.commons.io.FileUtils;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
 
 /**
  * @author Deki on 18.06.2021
@@ -15,6 +51,23 @@ import org.apache.commons.io.FileUtils;
  **/
 public class Compiler {
 
+  /**
+   * The system java compiler, or null if we are running on a JRE that doesn't ship one
+   */
+  private static final JavaCompiler JAVA_COMPILER = ToolProvider.getSystemJavaCompiler();
+
+  /**
+   * Warm file managers for in-process compilations, one per core. Opened archives and the platform
+   * class index are reused between builds, and builds on different cores don't wait on each other.
+   */
+  private static final FileManagerPool FILE_MANAGERS = JAVA_COMPILER == null ? null
+      : new FileManagerPool(JAVA_COMPILER, Runtime.getRuntime().availableProcessors());
+
+  /**
+   * Packages compiled classes to jar files
+   */
+  private static final JarWriter JAR_WRITER = new JarWriter();
+
   /**
    * Compiles the source code of an entire directory using the javac command line tool.
    *
@@ -28,13 +81,15 @@ public class Compiler {
     output.mkdirs();
     StringBuilder classpath = new StringBuilder();
     for (File library : libraries) {
-      classpath.append(library).append(";");
+      classpath.append(library).append(File.pathSeparator);
     }
     File indexFile = new File(dir + "-index");
     indexSourceFiles(dir, indexFile);
-    String command = String.format("javac @%s -d %s", indexFile, output);
+    List<String> command = new ArrayList<>(
+        Arrays.asList("javac", "@" + indexFile, "-d", output.toString()));
     if (classpath.length() > 0) {
-      command += " -cp " + classpath;
+      command.add("-cp");
+      command.add(classpath.toString());
     }
     int exitCode = ProcessUtil.execute(command);
     indexFile.delete();
@@ -42,7 +97,442 @@ public class Compiler {
   }
 
   /**
-   * Packages class files in a directory to a jar file.
+   * Compiles the source code of an entire directory with the system java compiler, inside of the
+   * running JVM. Falls back to {@link #compile(File, File, File...)} if no system compiler is
+   * available.
+   *
+   * @param dir       Directory of source code to compile
+   * @param output    Directory where compiled .class files will be saved
+   * @param libraries List of libraries to add to classpath when compiling
+   * @return Result of the compilation, including compiler diagnostics
+   */
+  public static CompilationResult compileInProcess(File dir, File output, File... libraries) {
+    if (JAVA_COMPILER == null) {
+      return new CompilationResult(compile(dir, output, libraries), Collections.emptyList());
+    }
+    cleanDirectory(output);
+    output.mkdirs();
+    return compileFiles(findSourceFiles(dir), output, Arrays.asList(libraries),
+        Function.identity());
+  }
+
+  /**
+   * Compiles the source code of an entire directory with the system java compiler, splitting it
+   * into partitions of strongly connected packages first. Partitions that don't depend on each
+   * other are compiled concurrently, every partition once all of its dependencies are compiled.
+   * Each partition is compiled to its own staging directory, and the staging directories are
+   * merged into the output directory once every partition compiled. If any partition fails, for
+   * example because of a dependency that isn't declared through an import, the whole directory is
+   * compiled at once instead.
+   *
+   * @param dir       Directory of source code to compile
+   * @param output    Directory where compiled .class files will be saved
+   * @param libraries List of libraries to add to classpath when compiling
+   * @return Result of the compilation, including compiler diagnostics
+   */
+  public static CompilationResult compileParallel(File dir, File output, File... libraries) {
+    if (JAVA_COMPILER == null) {
+      return new CompilationResult(compile(dir, output, libraries), Collections.emptyList());
+    }
+    cleanDirectory(output);
+    output.mkdirs();
+    List<File> sources = findSourceFiles(dir);
+    List<PackageGraph.Partition> partitions;
+    try {
+      partitions = PackageGraph.partition(sources);
+    } catch (IOException e) {
+      e.printStackTrace();
+      partitions = Collections.emptyList();
+    }
+    if (partitions.size() > 1) {
+      CompilationResult result = compilePartitions(partitions, output, libraries);
+      if (result != null) {
+        return result;
+      }
+      cleanDirectory(output);
+      output.mkdirs();
+    }
+    return compileFiles(sources, output, Arrays.asList(libraries), Function.identity());
+  }
+
+  /**
+   * Compiles partitions concurrently in dependency order and merges their output.
+   *
+   * @param partitions Partitions in dependency order
+   * @param output     Directory where compiled .class files will be saved
+   * @param libraries  List of libraries to add to classpath when compiling
+   * @return Combined result of all partitions, or null if any partition failed to compile
+   */
+  private static CompilationResult compilePartitions(List<PackageGraph.Partition> partitions,
+      File output, File... libraries) {
+    File staging = new File(output + "-partitions");
+    cleanDirectory(staging);
+    Map<PackageGraph.Partition, File> outputs = new HashMap<>();
+    for (int i = 0; i < partitions.size(); i++) {
+      outputs.put(partitions.get(i), new File(staging, String.valueOf(i)));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(partitions.size(), Runtime.getRuntime().availableProcessors()));
+    try {
+      Map<PackageGraph.Partition, CompletableFuture<CompilationResult>> futures = new HashMap<>();
+      for (PackageGraph.Partition partition : partitions) {
+        CompletableFuture<?>[] dependencies = partition.getDependencies().stream()
+            .map(futures::get).toArray(CompletableFuture[]::new);
+        futures.put(partition, CompletableFuture.allOf(dependencies).thenApplyAsync(ignored -> {
+          for (CompletableFuture<?> dependency : dependencies) {
+            if (!((CompilationResult) dependency.join()).isSuccess()) {
+              return new CompilationResult(false, Collections.emptyList());
+            }
+          }
+          List<File> classpath = new ArrayList<>();
+          for (PackageGraph.Partition dependency : partition.getTransitiveDependencies()) {
+            classpath.add(outputs.get(dependency));
+          }
+          classpath.addAll(Arrays.asList(libraries));
+          File partitionOutput = outputs.get(partition);
+          partitionOutput.mkdirs();
+          return compileFiles(partition.getSources(), partitionOutput, classpath,
+              Function.identity());
+        }, executor));
+      }
+      //wait for every partition, so none writes to the staging directory after it is cleaned
+      CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).join();
+      List<Diagnostic<? extends JavaFileObject>> diagnostics = new ArrayList<>();
+      for (PackageGraph.Partition partition : partitions) {
+        CompilationResult result = futures.get(partition).join();
+        if (!result.isSuccess()) {
+          return null;
+        }
+        diagnostics.addAll(result.getDiagnostics());
+      }
+      for (File partitionOutput : outputs.values()) {
+        mergeDirectory(partitionOutput, output);
+      }
+      return new CompilationResult(true, diagnostics);
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace();
+      return null;
+    } finally {
+      executor.shutdown();
+      cleanDirectory(staging);
+    }
+  }
+
+  /**
+   * Moves every file of a directory into another directory, keeping their relative paths.
+   *
+   * @param from Directory to move files from
+   * @param to   Directory to move files to
+   * @throws IOException If a file couldn't be moved
+   */
+  private static void mergeDirectory(File from, File to) throws IOException {
+    Path source = from.toPath();
+    try (Stream<Path> paths = Files.walk(source)) {
+      for (Path file : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+        Path target = to.toPath().resolve(source.relativize(file));
+        Files.createDirectories(target.getParent());
+        Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+  }
+
+  /**
+   * Incrementally compiles the source code of an entire directory with the system java compiler.
+   * A manifest next to the output directory remembers the content hash of every source file and
+   * the dependencies between the generated classes. Only source files that changed since the last
+   * compilation, and the source files that depend on them, are recompiled. Classes generated by
+   * changed or removed source files are deleted before compiling. Falls back to a full compilation
+   * when there is no usable manifest, the libraries or the JDK changed, or a changed class declares
+   * compile-time constants that may have been inlined into other classes.
+   *
+   * @param dir       Directory of source code to compile
+   * @param output    Directory where compiled .class files will be saved
+   * @param libraries List of libraries to add to classpath when compiling
+   * @return Result of the compilation, including compiler diagnostics
+   */
+  public static CompilationResult compileIncremental(File dir, File output, File... libraries) {
+    if (JAVA_COMPILER == null) {
+      return new CompilationResult(compile(dir, output, libraries), Collections.emptyList());
+    }
+    File manifestFile = new File(output + "-manifest");
+    String environment = fingerprintEnvironment(libraries);
+    BuildManifest previous = output.isDirectory() ? BuildManifest.read(manifestFile) : null;
+    manifestFile.delete();
+    Map<String, File> sources = new HashMap<>();
+    Map<String, String> hashes = new HashMap<>();
+    //the indexer returns absolute paths, whatever form dir was given in
+    Path root = dir.toPath().toAbsolutePath().normalize();
+    try {
+      for (File source : findSourceFiles(dir)) {
+        String path = root.relativize(source.toPath()).toString();
+        sources.put(path, source);
+        hashes.put(path, BuildManifest.hash(source));
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+      return new CompilationResult(false, Collections.emptyList());
+    }
+
+    BuildManifest manifest = previous;
+    Set<String> recompile = new HashSet<>();
+    if (previous == null || !previous.getEnvironment().equals(environment)) {
+      manifest = null;
+    } else {
+      Set<String> changedSources = new HashSet<>();
+      for (String path : sources.keySet()) {
+        if (!hashes.get(path).equals(previous.getHash(path))) {
+          changedSources.add(path);
+        }
+      }
+      for (String path : previous.getSources()) {
+        if (!sources.containsKey(path)) {
+          changedSources.add(path);
+        }
+      }
+      Set<String> changedClasses = new HashSet<>();
+      for (String path : changedSources) {
+        changedClasses.addAll(previous.getClasses(path));
+      }
+      for (String name : changedClasses) {
+        if (previous.declaresConstants(name)) {
+          manifest = null;
+          break;
+        }
+      }
+      if (manifest != null) {
+        recompile.addAll(changedSources);
+        recompile.addAll(previous.getDependents(changedClasses));
+        for (String path : recompile) {
+          for (String name : previous.getClasses(path)) {
+            new File(output, name.replace('.', File.separatorChar) + ".class").delete();
+          }
+          previous.remove(path);
+        }
+        recompile.retainAll(sources.keySet());
+      }
+    }
+    if (manifest == null) {
+      cleanDirectory(output);
+      manifest = new BuildManifest(environment);
+      recompile.addAll(sources.keySet());
+    }
+    output.mkdirs();
+
+    List<File> files = new ArrayList<>();
+    for (String path : recompile) {
+      files.add(sources.get(path));
+    }
+    List<File> classpath = new ArrayList<>();
+    classpath.add(output);
+    classpath.addAll(Arrays.asList(libraries));
+    Map<File, Set<String>> generated = new HashMap<>();
+    CompilationResult result = compileFiles(files, output, classpath,
+        manager -> new TrackingFileManager<>(manager, generated));
+    if (!result.isSuccess()) {
+      //without a manifest the next compilation starts from scratch
+      return result;
+    }
+    try {
+      for (String path : recompile) {
+        List<ClassFileInfo> infos = new ArrayList<>();
+        for (String name : generated.getOrDefault(sources.get(path), Collections.emptySet())) {
+          File classFile = new File(output, name.replace('.', File.separatorChar) + ".class");
+          try (InputStream in = Files.newInputStream(classFile.toPath())) {
+            infos.add(ClassFileInfo.read(in));
+          }
+        }
+        manifest.record(path, hashes.get(path), infos);
+      }
+      manifest.write(manifestFile);
+    } catch (IOException e) {
+      e.printStackTrace();
+      manifestFile.delete();
+    }
+    return result;
+  }
+
+  /**
+   * Compiles the source code of an entire directory with the system java compiler and packages the
+   * compiled classes to a jar file, without writing .class files to disk. Compiler output is kept in
+   * memory and streamed straight into the jar. Falls back to {@link #compile(File, File, File...)}
+   * and {@link #createJar(File, File)} with a temporary class directory if no system compiler is
+   * available.
+   *
+   * @param dir       Directory of source code to compile
+   * @param output    Jar file to package the compiled classes to
+   * @param libraries List of libraries to add to classpath when compiling
+   * @return Result of the compilation, including compiler diagnostics. The jar file is only
+   * written if compilation succeeded.
+   */
+  public static CompilationResult compileToJar(File dir, File output, File... libraries) {
+    if (output.exists()) {
+      output.delete();
+    }
+    if (JAVA_COMPILER == null) {
+      File classes = new File(output + "-classes");
+      boolean success = compile(dir, classes, libraries) && createJar(classes, output);
+      cleanDirectory(classes);
+      return new CompilationResult(success, Collections.emptyList());
+    }
+    Map<String, byte[]> entries = new TreeMap<>();
+    CompilationResult result = compileFiles(findSourceFiles(dir), null,
+        Arrays.asList(libraries), manager -> new MemoryFileManager<>(manager, entries));
+    if (!result.isSuccess()) {
+      return result;
+    }
+    try {
+      JAR_WRITER.write(entries, output);
+    } catch (IOException e) {
+      e.printStackTrace();
+      output.delete();
+      return new CompilationResult(false, result.getDiagnostics());
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@link #compileToJar(File, File, File...)}, but reuses the jar of an earlier build with
+   * the same sources, libraries and compiler if the cache has one, and stores newly built jars in
+   * the cache.
+   *
+   * @param dir       Directory of source code to compile
+   * @param output    Jar file to package the compiled classes to
+   * @param cache     Cache to look up and store the jar in
+   * @param sourceId  Identifies the exact sources in the directory, like the git tree or commit
+   *                  hash they were checked out from
+   * @param libraries List of libraries to add to classpath when compiling
+   * @return Result of the compilation. A cached jar results in a successful compilation without
+   * any diagnostics.
+   */
+  public static CompilationResult compileToJar(File dir, File output, ArtifactCache cache,
+      String sourceId, File... libraries) {
+    String key;
+    try {
+      key = ArtifactCache.key(sourceId, Arrays.asList(libraries),
+          Arrays.asList("compileToJar", System.getProperty("java.version")));
+    } catch (IOException e) {
+      e.printStackTrace();
+      return compileToJar(dir, output, libraries);
+    }
+    CompilationResult[] result = new CompilationResult[1];
+    boolean success = cache.getOrBuild(key, output, file -> {
+      result[0] = compileToJar(dir, file, libraries);
+      return result[0].isSuccess();
+    });
+    if (result[0] != null) {
+      return result[0];
+    }
+    return new CompilationResult(success, Collections.emptyList());
+  }
+
+  /**
+   * Creates a fingerprint of everything besides the sources that affects compiler output: the
+   * running JDK and the libraries on the classpath. Libraries are identified by path, size and
+   * modification time so large jars don't have to be read on every compilation.
+   *
+   * @param libraries Libraries added to the classpath when compiling
+   * @return Fingerprint of the compilation environment
+   */
+  private static String fingerprintEnvironment(File... libraries) {
+    StringBuilder builder = new StringBuilder(System.getProperty("java.version"));
+    for (File library : libraries) {
+      builder.append('|').append(library.getAbsolutePath())
+          .append(':').append(library.length())
+          .append(':').append(library.lastModified());
+    }
+    return BuildManifest.hash(builder.toString());
+  }
+
+  /**
+   * Compiles a set of source files with the system java compiler and a pooled file manager.
+   * Library jars on the classpath are read from the shared {@link LibraryCache}, so builds against
+   * the same libraries don't open and parse them again. Jars that declare annotation processors
+   * are also put on the processor path, where javac looks for processors.
+   *
+   * @param sources   Source files to compile
+   * @param output    Directory where compiled .class files will be saved, or null if the file
+   *                  manager created by the decorator handles all class output itself
+   * @param classpath Directories and libraries to add to classpath when compiling
+   * @param decorator Wraps the pooled file manager for the duration of this compilation
+   * @return Result of the compilation, including compiler diagnostics
+   */
+  static CompilationResult compileFiles(List<File> sources, File output, List<File> classpath,
+      Function<JavaFileManager, JavaFileManager> decorator) {
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    if (sources.isEmpty()) {
+      return new CompilationResult(true, diagnostics.getDiagnostics());
+    }
+    List<File> directories = new ArrayList<>();
+    List<File> processorPath = new ArrayList<>();
+    List<LibraryIndex> libraries = new ArrayList<>();
+    for (File entry : classpath) {
+      if (!entry.isFile()) {
+        directories.add(entry);
+        continue;
+      }
+      try {
+        LibraryIndex library = LibraryCache.get(entry);
+        libraries.add(library);
+        if (library.hasProcessors()) {
+          processorPath.add(entry);
+        }
+      } catch (IOException e) {
+        //let javac read the library itself
+        e.printStackTrace();
+        directories.add(entry);
+        processorPath.add(entry);
+      }
+    }
+    StandardJavaFileManager manager;
+    try {
+      manager = FILE_MANAGERS.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new CompilationResult(false, diagnostics.getDiagnostics());
+    }
+    File scratch = null;
+    try {
+      //pooled managers keep their locations, so the outputs are set for every build
+      File classOutput = output;
+      if (classOutput == null) {
+        //class files stay in memory, generated sources still need a directory of their own
+        scratch = Files.createTempDirectory("dsdn-generated").toFile();
+        classOutput = scratch;
+      }
+      manager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(classOutput));
+      manager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(classOutput));
+      manager.setLocation(StandardLocation.CLASS_PATH, directories);
+      manager.setLocation(StandardLocation.ANNOTATION_PROCESSOR_PATH, processorPath);
+      Iterable<? extends JavaFileObject> units = manager.getJavaFileObjectsFromFiles(sources);
+      JavaFileManager taskManager = decorator.apply(new LibraryFileManager<>(manager, libraries));
+      Boolean success = JAVA_COMPILER
+          .getTask(null, taskManager, diagnostics, null, null, units)
+          .call();
+      return new CompilationResult(Boolean.TRUE.equals(success), diagnostics.getDiagnostics());
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace();
+    } finally {
+      //release handles to the archives of this build, the platform classes stay cached
+      try {
+        manager.flush();
+        manager.setLocation(StandardLocation.CLASS_OUTPUT, null);
+        manager.setLocation(StandardLocation.SOURCE_OUTPUT, null);
+        manager.setLocation(StandardLocation.CLASS_PATH, Collections.emptyList());
+        manager.setLocation(StandardLocation.ANNOTATION_PROCESSOR_PATH, Collections.emptyList());
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      FILE_MANAGERS.release(manager);
+      if (scratch != null) {
+        cleanDirectory(scratch);
+      }
+    }
+    return new CompilationResult(false, diagnostics.getDiagnostics());
+  }
+
+  /**
+   * Packages class files in a directory to a jar file. Entries are compressed in parallel and the
+   * resulting jar is reproducible, identical class files always give a byte-identical jar.
    *
    * @param dir    Directory of class files to package
    * @param output File to package classes to
@@ -52,14 +542,20 @@ public class Compiler {
     if (output.exists()) {
       output.delete();
     }
-    //use the -C argument to make sure the directory structure inside the jar file is
-    //the same as source package structure
-    int exitCode = ProcessUtil.execute(String.format("jar cf %s -C %s .", output, dir, dir));
-    return exitCode == 0;
+    try {
+      //paths are relative to the directory, so the directory structure inside the jar file is
+      //the same as source package structure
+      JAR_WRITER.write(dir, output);
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      output.delete();
+    }
+    return false;
   }
 
   /**
-   * Traverses a directory and saves the full path of every .java file it finds. The paths are saved
+   * Indexes a directory and saves the full path of every .java file it finds. The paths are saved
    * to a file that we can pass to javac later to compile the source code of the whole directory.
    *
    * @param dir    Directory to traverse
@@ -67,38 +563,40 @@ public class Compiler {
    *               overwritten.
    */
   private static void indexSourceFiles(File dir, File output) {
+    try (BufferedWriter writer = Files.newBufferedWriter(output.toPath())) {
+      for (File file : findSourceFiles(dir)) {
+        writer.write(file.getPath());
+        writer.write(' ');
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Indexes every .java file in a directory with the {@link SourceIndexer}, which skips version
+   * control and build output directories.
+   *
+   * @param dir Directory to traverse
+   * @return List of source files, or an empty list if the directory couldn't be traversed
+   */
+  private static List<File> findSourceFiles(File dir) {
     try {
-      if (output.exists()) {
-        output.delete();
-      }
-      output.createNewFile();
-      StringBuilder builder = new StringBuilder();
-      List<String> files = Files.walk(dir.toPath()).map(Path::toString)
-          .filter(file -> file.endsWith(".java")).collect(Collectors.toList());
-      files.forEach(file -> builder.append(file).append(" "));
-      Files.write(output.toPath(), builder.toString().getBytes());
+      return SourceIndexer.index(dir);
     } catch (IOException e) {
       e.printStackTrace();
     }
+    return new ArrayList<>();
   }
 
   /**
-   * Fully deletes a directory, if it exists.
+   * Removes a directory, if it exists. The directory is moved out of the way right away and
+   * deleted in the background, see {@link WorkspaceManager}.
    *
-   * @param dir Directory to delete
+   * @param dir Directory to remove
    */
   private static void cleanDirectory(File dir) {
-    if (dir.exists()) {
-      if (!dir.isDirectory()) {
-        dir.delete();
-      } else {
-        try {
-          FileUtils.deleteDirectory(dir);
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      }
-    }
+    WorkspaceManager.getDefault().clean(dir);
   }
 
 }
@@ -1,14 +1,28 @@
 package io.deki.dsdn;
 
+import io.deki.dsdn.log.LogChannel;
+import io.deki.dsdn.maven.CpuBudget;
+import io.deki.dsdn.maven.MavenBuildResult;
+import io.deki.dsdn.maven.MavenEmbedder;
+import io.deki.dsdn.maven.MavenInstaller;
+import io.deki.dsdn.maven.MavenOutputParser;
+import io.deki.dsdn.maven.MavenRepository;
+import io.deki.dsdn.util.AdmissionController;
+import io.deki.dsdn.util.LineOutputStream;
+import io.deki.dsdn.util.ProcessResult;
 import io.deki.dsdn.util.ProcessUtil;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import net.lingala.zip4j.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * @author Deki on 21.07.2021
@@ -30,51 +44,53 @@ public class MavenWrapper {
    * Parent of the maven files, used for command line arguments
    */
   private static final String MAVEN_HOME_LOCATION =
-      MAVEN_LOCATION + File.separator + "apache-maven-3.8.1";
+      MAVEN_LOCATION + File.separator + "apache-maven-3.9.11";
 
   /**
-   * Parent of the maven binary file
+   * URL from which maven binaries are downloaded from, a .sha512 checksum file is expected next
+   * to it
    */
-  private static final String MAVEN_BINARY_PARENT_LOCATION =
-      MAVEN_HOME_LOCATION + File.separator + "bin";
+  private static final String MAVEN_DOWNLOAD_URL =
+      "https://archive.apache.org/dist/maven/maven-3/3.9.11/binaries/apache-maven-3.9.11-bin.zip";
 
   /**
-   * Parent of the maven plexus file
+   * Local repository shared by all builds
    */
-  private static final String MAVEN_BOOT_PARENT_LOCATION =
-      MAVEN_HOME_LOCATION + File.separator + "boot";
+  private static final MavenRepository REPOSITORY =
+      new MavenRepository(new File(DSDN_HOME + File.separator + "repository"));
 
   /**
-   * Full path of the maven binaries after they have been downloaded and unzipped
+   * Whether or not builds run inside of this JVM instead of a new JVM per build
    */
-  private static final String MAVEN_BINARY_LOCATION =
-      MAVEN_BINARY_PARENT_LOCATION + File.separator + "mvn";
+  private static volatile boolean embedded;
 
   /**
-   * Location of the downloaded zip file containing maven
+   * Reactor threads per available core of a build, 0 to build modules one after another
    */
-  private static final String MAVEN_ZIP_LOCATION = DSDN_HOME + File.separator + "mvn.zip";
+  private static volatile double threadsPerCore;
 
   /**
-   * URL from which maven binaries are downloaded from
+   * Milliseconds a forked build may run before it's killed, 0 for no limit
    */
-  private static final String MAVEN_DOWNLOAD_URL =
-      "https://downloads.apache.org/maven/maven-3/3.8.1/binaries/apache-maven-3.8.1-bin.zip";
+  private static volatile long timeout;
 
   /**
-   * Make sure maven is installed before any maven related method is called
+   * Build threads of all builds together, defaults to one per available core
    */
-  static {
-    if (!isMavenInstalled()) {
-      if (!downloadMaven()) {
-        System.out.println("Failed to download maven binaries");
-      } else if (!unzipMaven()) {
-        System.out.println("Failed to unzip maven binaries");
-      } else {
-        cleanupInstallation();
-      }
-    }
-  }
+  private static volatile CpuBudget cpuBudget =
+      new CpuBudget(Runtime.getRuntime().availableProcessors());
+
+  /**
+   * Provisions the maven distribution, on the first build or through {@link #provision()}
+   */
+  private static volatile MavenInstaller installer =
+      new MavenInstaller(new File(MAVEN_HOME_LOCATION), MAVEN_DOWNLOAD_URL);
+
+  /**
+   * Runs embedded builds, keeps the maven distribution and its container loaded between builds
+   */
+  private static volatile MavenEmbedder embedder =
+      new MavenEmbedder(new File(MAVEN_HOME_LOCATION));
 
   /**
    * Execute a maven plugin on a directory
@@ -85,97 +101,330 @@ public class MavenWrapper {
    * @return Whether or not the command was executed without errors
    */
   public static boolean executeMavenCommand(File dir, String plugin) {
-    String command = buildMavenBase() + "-f " + dir.getAbsolutePath() + " " + plugin;
-    int exitCode = ProcessUtil.execute(command);
-    return exitCode == 0;
+    return executeMavenBuild(dir, plugin).isSuccess();
   }
 
   /**
-   * Helper method to generate the base cli command to run maven. Simply explained, it's a very
-   * verbose way of writing "mvn" (which doesn't work in this context, hence why we do this)
+   * Execute a maven plugin on a directory and record the timeline of the build. Timings are taken
+   * from the build output, plugins run with -q report none.
+   *
+   * @param dir    The directory of the project(s) to build - can contain one or multiple modules,
+   *               with one or multiple pom files
+   * @param plugin The maven plugin to run, like "clean", "install" and "package"
+   * @return Result of the build, with the time spent per phase, mojo and module and the produced
+   * artifacts
+   */
+  public static MavenBuildResult executeMavenBuild(File dir, String plugin) {
+    try (LogChannel log = LogChannel.console("DSDN " + dir.getName())) {
+      return executeMavenBuild(dir, plugin, log);
+    }
+  }
+
+  /**
+   * Execute a maven plugin on a directory, record the timeline of the build and write its output
+   * to a log instead of the console.
+   *
+   * @param dir    The directory of the project(s) to build - can contain one or multiple modules,
+   *               with one or multiple pom files
+   * @param plugin The maven plugin to run, like "clean", "install" and "package"
+   * @param log    Receives the output of the build, stays open after the build
+   * @return Result of the build, with the time spent per phase, mojo and module and the produced
+   * artifacts
+   */
+  public static MavenBuildResult executeMavenBuild(File dir, String plugin, LogChannel log) {
+    return executeMavenBuild(dir, plugin, log, getReactorThreads(), cpuBudget);
+  }
+
+  /**
+   * Executes a maven plugin on several independent projects at once. The projects share the CPU
+   * budget, each of them gets an equal part of it as reactor threads, so a big multi-module
+   * project can't take every thread while other projects wait. Embedded builds still run one at a
+   * time, see {@link #setEmbedded(boolean)}.
    *
-   * @return Maven base command
+   * @param dirs   The directories of the projects to build
+   * @param plugin The maven plugin to run on every project, like "clean", "install" and "package"
+   * @return Result of every build, in the order of the directories
    */
-  private static String buildMavenBase() {
-    return "java"
-        + " -Dmaven.multiModuleProjectDirectory="
-        + MAVEN_HOME_LOCATION
-        + " -Dmaven.home="
-        + MAVEN_HOME_LOCATION
-        + " -Dclassworlds.conf="
-        + MAVEN_BINARY_PARENT_LOCATION + File.separator + "m2.conf"
-        + " -classpath "
-        + MAVEN_BOOT_PARENT_LOCATION + File.separator + "plexus-classworlds-2.6.0.jar;"
-        + MAVEN_BOOT_PARENT_LOCATION + File.separator + "plexus-classworlds.license"
-        + " org.codehaus.classworlds.Launcher ";
+  public static Map<File, MavenBuildResult> executeMavenBuilds(List<File> dirs, String plugin) {
+    Map<File, MavenBuildResult> results = new LinkedHashMap<>();
+    if (dirs.isEmpty()) {
+      return results;
+    }
+    CpuBudget budget = cpuBudget;
+    int share = Math.max(1, budget.getSize() / dirs.size());
+    int threads = Math.min(getReactorThreads(), share);
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(dirs.size(), budget.getSize()));
+    try {
+      List<CompletableFuture<MavenBuildResult>> futures = new ArrayList<>();
+      for (File dir : dirs) {
+        futures.add(CompletableFuture.supplyAsync(() -> {
+          try (LogChannel log = LogChannel.console("DSDN " + dir.getName())) {
+            return executeMavenBuild(dir, plugin, log, threads, budget);
+          }
+        }, executor));
+      }
+      for (int i = 0; i < dirs.size(); i++) {
+        results.put(dirs.get(i), futures.get(i).join());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    return results;
   }
 
   /**
-   * First checks whether or not the dsdn home folder exists and creates it if it doesn't. Then
-   * checks if the maven binary file exists
+   * Executes a build once the host isn't overloaded and the CPU budget has room for its reactor
+   * threads.
    *
-   * @return Returns whether or not the maven binaries are installed by dsdn.
+   * @param dir     The directory of the project to build
+   * @param plugin  The maven plugin to run
+   * @param log     Receives the output of the build
+   * @param threads Reactor threads the build should use, 1 for a sequential reactor
+   * @param budget  Budget the threads are taken from
+   * @return Result of the build
    */
-  private static boolean isMavenInstalled() {
-    File folder = new File(DSDN_HOME);
-    if (!folder.exists() || !folder.isDirectory()) {
-      folder.mkdirs();
-      return false;
+  private static MavenBuildResult executeMavenBuild(File dir, String plugin, LogChannel log,
+      int threads, CpuBudget budget) {
+    int granted;
+    try {
+      AdmissionController.await();
+      granted = budget.acquire(threads);
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+      Thread.currentThread().interrupt();
+      return new MavenOutputParser().finish(false);
+    }
+    try {
+      return runMavenBuild(dir, granted > 1 ? plugin + " -T " + granted : plugin, log);
+    } finally {
+      budget.release(granted);
     }
-    File mvn = new File(MAVEN_BINARY_LOCATION);
-    return mvn.exists();
   }
 
   /**
-   * Downloads maven from apaches servers
+   * Executes a build right away.
    *
-   * @return Whether or not the download was successful
+   * @param dir    The directory of the project to build
+   * @param plugin The maven plugin to run
+   * @param log    Receives the output of the build
+   * @return Result of the build
    */
-  private static boolean downloadMaven() {
-    System.out.println("Downloading maven binaries from " + MAVEN_DOWNLOAD_URL + "...");
+  private static MavenBuildResult runMavenBuild(File dir, String plugin, LogChannel log) {
+    List<String> arguments = buildArguments(dir, plugin);
+    MavenOutputParser parser = new MavenOutputParser();
+    MavenInstaller installer = MavenWrapper.installer;
+    MavenEmbedder embedder = MavenWrapper.embedder;
+    File home;
     try {
-      InputStream in = new URL(MAVEN_DOWNLOAD_URL).openStream();
-      Files.copy(in, new File(MAVEN_ZIP_LOCATION).toPath(),
-          StandardCopyOption.REPLACE_EXISTING);
-      System.out.println("Downloaded maven binaries to " + MAVEN_ZIP_LOCATION);
-      return true;
+      home = installer.install(log).join();
+    } catch (CompletionException e) {
+      e.getCause().printStackTrace();
+      return parser.finish(false);
+    }
+    if (embedded) {
+      String[] args = arguments.toArray(new String[0]);
+      int exitCode;
+      try (PrintStream out = new PrintStream(new LineOutputStream(line -> {
+        parser.accept(line);
+        log.append(line);
+      }), true)) {
+        exitCode = embedder.execute(dir, args, out, out);
+      }
+      return parser.finish(exitCode == 0);
+    }
+    try {
+      List<String> command = buildMavenBase(home);
+      command.addAll(arguments);
+      ProcessResult result = ProcessUtil.executeAsync(command, null, log, parser, timeout).join();
+      return parser.finish(result.getExitCode() == 0, result.getUsage());
     } catch (IOException e) {
       e.printStackTrace();
+    } catch (CompletionException e) {
+      e.getCause().printStackTrace();
     }
-    return false;
+    return parser.finish(false);
   }
 
   /**
-   * Unzips the recently downloaded maven zip file
+   * Installs maven in the background, so the first build doesn't have to wait for the download.
+   * Builds install maven themselves if this hasn't been called.
    *
-   * @return Whether or not the file was unzipped
+   * @return Future that completes with whether or not maven is installed
    */
-  private static boolean unzipMaven() {
-    System.out.println("Unpacking maven binaries...");
-    ZipFile zipFile = new ZipFile(MAVEN_ZIP_LOCATION);
-    try {
-      File folder = new File(MAVEN_LOCATION);
-      if (!folder.exists() || !folder.isDirectory()) {
-        folder.mkdirs();
+  public static CompletableFuture<Boolean> provision() {
+    LogChannel log = LogChannel.console("maven");
+    return installer.install(log).handle((home, e) -> {
+      log.close();
+      if (e != null) {
+        e.printStackTrace();
       }
-      zipFile.extractAll(MAVEN_LOCATION);
-      System.out.println("Extracted zip contents to " + MAVEN_LOCATION);
+      return e == null;
+    });
+  }
+
+  /**
+   * Uses a maven distribution that is installed already, like one installed by a package
+   * manager. Maven is downloaded to the directory if it doesn't contain a distribution.
+   *
+   * @param home Root of the maven distribution, the directory containing bin, boot and lib
+   */
+  public static synchronized void setMavenHome(File home) {
+    installer = new MavenInstaller(home, installer.getUrl());
+    MavenEmbedder previous = embedder;
+    embedder = new MavenEmbedder(home);
+    previous.close();
+  }
+
+  /**
+   * Downloads maven from a different location, like a local mirror. The zip must have a .sha512
+   * checksum file next to it.
+   *
+   * @param url URL of the maven distribution zip
+   */
+  public static synchronized void setDistributionUrl(String url) {
+    installer = new MavenInstaller(installer.getHome(), url);
+  }
+
+  /**
+   * Resolves and downloads every dependency and plugin a project needs into the shared local
+   * repository, without building it. Builds of the project can run offline afterwards.
+   *
+   * @param dir The directory of the project to resolve
+   * @return Whether or not everything was resolved
+   */
+  public static boolean prewarm(File dir) {
+    return executeMavenCommand(dir, "dependency:go-offline");
+  }
+
+  /**
+   * Sets the local repository shared by all builds. Defaults to a repository in the dsdn home
+   * folder.
+   *
+   * @param dir Directory of the local repository
+   */
+  public static void setRepository(File dir) {
+    REPOSITORY.setDir(dir);
+  }
+
+  /**
+   * Switches offline mode. Offline builds only use artifacts that are already in the shared
+   * local repository, see {@link #prewarm(File)}.
+   *
+   * @param offline Whether or not builds may download missing artifacts
+   */
+  public static void setOffline(boolean offline) {
+    REPOSITORY.setOffline(offline);
+  }
+
+  /**
+   * Routes every download through a mirror, like a company proxy or a local stand-in repository.
+   *
+   * @param url URL of the mirror, or null to download from the repositories of the projects
+   * @return Whether or not the mirror was configured
+   */
+  public static boolean setMirror(String url) {
+    try {
+      REPOSITORY.setMirror(url);
       return true;
-    } catch (ZipException e) {
+    } catch (IOException e) {
       e.printStackTrace();
     }
     return false;
   }
 
   /**
-   * Deletes the downloaded maven zip file
+   * Helper method to generate the maven arguments of a build, pointing maven to the project and
+   * the shared local repository.
+   *
+   * @param dir    The directory of the project to build
+   * @param plugin The maven plugin to run, can contain further arguments separated by spaces
+   * @return Maven command line arguments
+   */
+  private static List<String> buildArguments(File dir, String plugin) {
+    List<String> arguments = new ArrayList<>();
+    arguments.add("-f");
+    arguments.add(dir.getAbsolutePath());
+    arguments.addAll(REPOSITORY.getArguments());
+    arguments.addAll(Arrays.asList(plugin.trim().split("\\s+")));
+    return arguments;
+  }
+
+  /**
+   * Limits how long a build may run. Builds that run longer are killed together with every
+   * process they started, like forked compilers and test JVMs, and fail. Embedded builds can't be
+   * killed and ignore the limit.
+   *
+   * @param timeout Milliseconds a build may run, 0 for no limit
+   */
+  public static void setTimeout(long timeout) {
+    MavenWrapper.timeout = Math.max(0, timeout);
+  }
+
+  /**
+   * Builds the modules of multi-module projects in parallel. Modules that depend on each other
+   * still build in order.
+   *
+   * @param threadsPerCore Reactor threads per available core, like 1 or 1.5, or 0 to build modules
+   *                       one after another
+   */
+  public static void setThreadsPerCore(double threadsPerCore) {
+    MavenWrapper.threadsPerCore = Math.max(0, threadsPerCore);
+  }
+
+  /**
+   * Sets how many build threads may run at once across all builds. Builds wait until the budget
+   * has room for their reactor threads.
+   *
+   * @param threads Build threads of all builds together
+   */
+  public static void setCpuBudget(int threads) {
+    cpuBudget = new CpuBudget(threads);
+  }
+
+  /**
+   * Helper method to calculate the reactor threads of a build from the threads per core.
+   *
+   * @return Reactor threads of a build, 1 for a sequential reactor
+   */
+  private static int getReactorThreads() {
+    int cores = Runtime.getRuntime().availableProcessors();
+    return Math.max(1, (int) Math.round(threadsPerCore * cores));
+  }
+
+  /**
+   * Switches between running maven in a new JVM for every build, and running it inside of this
+   * JVM. Embedded builds skip JVM startup and reuse the already loaded and JIT compiled maven core
+   * classes, but run one at a time.
+   *
+   * @param embedded Whether or not builds should run inside of this JVM
+   */
+  public static void setEmbedded(boolean embedded) {
+    MavenWrapper.embedded = embedded;
+  }
+
+  /**
+   * Helper method to generate the base cli command to run maven. Simply explained, it's a very
+   * verbose way of writing "mvn" (which doesn't work in this context, hence why we do this)
+   *
+   * @param home Root of the maven distribution
+   * @return Maven base command and its arguments
+   * @throws IOException If the distribution has no plexus-classworlds jar
    */
-  private static void cleanupInstallation() {
-    System.out.println("Cleaning up...");
-    File zip = new File(MAVEN_ZIP_LOCATION);
-    if (zip.exists()) {
-      zip.delete();
+  private static List<String> buildMavenBase(File home) throws IOException {
+    File[] boot = new File(home, "boot").listFiles(
+        (parent, name) -> name.startsWith("plexus-classworlds") && name.endsWith(".jar"));
+    if (boot == null || boot.length == 0) {
+      throw new IOException("No plexus-classworlds jar in " + home);
     }
+    return new ArrayList<>(Arrays.asList("java",
+        "-Dmaven.multiModuleProjectDirectory=" + home.getAbsolutePath(),
+        "-Dmaven.home=" + home.getAbsolutePath(),
+        "-Dclassworlds.conf=" + new File(home, "bin" + File.separator + "m2.conf")
+            .getAbsolutePath(),
+        "-classpath", boot[0].getAbsolutePath(),
+        "org.codehaus.classworlds.Launcher"));
   }
 
+
 }
@@ -0,0 +1,313 @@
+package io.deki.dsdn.cache;
+
+import io.deki.dsdn.compile.BuildManifest;
+import io.deki.dsdn.compile.LibraryCache;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Local store for build artifacts, addressed by a hash of everything that went into the build: the
+ * source tree, the contents of the libraries and the compiler options. A build whose inputs have
+ * been built before can reuse the stored artifact instead of compiling again.
+ *
+ * <p>The total size of the stored artifacts is kept under a budget by evicting the least recently
+ * used artifacts. All methods are safe to call from multiple build threads at once, and multiple
+ * threads building the same key wait for each other instead of building twice.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class ArtifactCache {
+
+  /**
+   * Number of locks that builds of different keys are spread over
+   */
+  private static final int LOCK_STRIPES = 64;
+
+  /**
+   * Directory the artifacts are stored in
+   */
+  private final File dir;
+
+  /**
+   * Maximum total size of the stored artifacts in bytes
+   */
+  private final long maxBytes;
+
+  /**
+   * Size of every stored artifact, in least to most recently used order
+   */
+  private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Total size of the stored artifacts in bytes
+   */
+  private long totalBytes;
+
+  /**
+   * Number of gets copying each artifact right now, guarded by the index lock. Pinned artifacts
+   * aren't evicted.
+   */
+  private final Map<String, Integer> pins = new HashMap<>();
+
+  private final Object[] locks = new Object[LOCK_STRIPES];
+
+  /**
+   * Opens a cache directory, picking up artifacts stored by earlier runs. Usage order of those
+   * artifacts is restored from their modification times.
+   *
+   * @param dir      Directory to store artifacts in, created if it doesn't exist
+   * @param maxBytes Maximum total size of the stored artifacts in bytes
+   */
+  public ArtifactCache(File dir, long maxBytes) {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+    for (int i = 0; i < locks.length; i++) {
+      locks[i] = new Object();
+    }
+    new File(dir, "tmp").mkdirs();
+    deleteStaleTemps();
+    try (Stream<Path> paths = Files.walk(dir.toPath())) {
+      List<File> artifacts = paths.map(Path::toFile)
+          .filter(file -> file.isFile() && file.getName().endsWith(".jar")
+              && !file.getParentFile().getName().equals("tmp"))
+          .sorted(Comparator.comparingLong(File::lastModified))
+          .collect(Collectors.toList());
+      for (File artifact : artifacts) {
+        String name = artifact.getName();
+        index.put(name.substring(0, name.length() - 4), artifact.length());
+        totalBytes += artifact.length();
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Creates the key of a build from all of its inputs.
+   *
+   * @param sourceId  Identifies the exact sources being built, like a git tree or commit hash, or
+   *                  {@link #hashSources(File)}
+   * @param libraries Libraries on the classpath of the build, hashed by content
+   * @param options   Compiler options and anything else that changes the build output
+   * @return Key of the build
+   * @throws IOException If a library couldn't be read
+   */
+  public static String key(String sourceId, List<File> libraries, List<String> options)
+      throws IOException {
+    StringBuilder builder = new StringBuilder(sourceId);
+    for (File library : libraries) {
+      builder.append('\n').append(LibraryCache.hash(library));
+    }
+    for (String option : options) {
+      builder.append('\n').append(option);
+    }
+    return BuildManifest.hash(builder.toString());
+  }
+
+  /**
+   * Hashes the paths and contents of every file in a directory, for sources that don't come with a
+   * git tree hash.
+   *
+   * @param dir Directory to hash
+   * @return Hash of the directory contents
+   * @throws IOException If the directory couldn't be read
+   */
+  public static String hashSources(File dir) throws IOException {
+    Path root = dir.toPath();
+    StringBuilder builder = new StringBuilder();
+    try (Stream<Path> paths = Files.walk(root)) {
+      List<Path> files = paths.filter(Files::isRegularFile)
+          .filter(path -> !root.relativize(path).startsWith(".git"))
+          .sorted().collect(Collectors.toList());
+      for (Path file : files) {
+        builder.append(root.relativize(file)).append('\t')
+            .append(BuildManifest.hash(file.toFile())).append('\n');
+      }
+    }
+    return BuildManifest.hash(builder.toString());
+  }
+
+  /**
+   * Copies a stored artifact to an output file. The output is a copy rather than a hard link, so
+   * writing to the output later, like a build truncating it, can't corrupt the stored artifact.
+   *
+   * @param key    Key of the build
+   * @param output File to copy the artifact to. If the file already exists it will be overwritten.
+   * @return Whether or not the artifact was stored in the cache
+   */
+  public boolean get(String key, File output) {
+    synchronized (index) {
+      //get instead of containsKey, so the access moves the artifact to the end of the order
+      if (index.get(key) == null) {
+        return false;
+      }
+      //index order is the in-memory usage order, the modification time the persistent one
+      artifactFile(key).setLastModified(System.currentTimeMillis());
+      //pinned so it can't be evicted halfway through the copy, which runs without the lock
+      pins.merge(key, 1, Integer::sum);
+    }
+    boolean copied = false;
+    try {
+      Files.deleteIfExists(output.toPath());
+      output.getAbsoluteFile().getParentFile().mkdirs();
+      Files.copy(artifactFile(key).toPath(), output.toPath());
+      copied = true;
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      synchronized (index) {
+        pins.computeIfPresent(key, (pinned, count) -> count == 1 ? null : count - 1);
+        if (!copied) {
+          forget(key);
+        }
+        //evictions skipped this artifact while it was pinned
+        evict();
+      }
+    }
+    return copied;
+  }
+
+  /**
+   * Stores a copy of an artifact and evicts least recently used artifacts until the cache is
+   * within its size budget again.
+   *
+   * @param key      Key of the build
+   * @param artifact Artifact to store
+   * @return Whether or not the artifact was stored
+   */
+  public boolean put(String key, File artifact) {
+    File temp = null;
+    try {
+      temp = File.createTempFile(key, ".jar", new File(dir, "tmp"));
+      Files.copy(artifact.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      File target = artifactFile(key);
+      synchronized (index) {
+        target.getParentFile().mkdirs();
+        try {
+          Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+              StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Long previous = index.put(key, target.length());
+        totalBytes += target.length() - (previous == null ? 0 : previous);
+        evict();
+      }
+      return true;
+    } catch (IOException e) {
+      e.printStackTrace();
+      if (temp != null) {
+        temp.delete();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Copies the artifact of a build to an output file, building and storing it first if it isn't
+   * stored yet. Concurrent calls with the same key build only once.
+   *
+   * @param key     Key of the build
+   * @param output  File to copy the artifact to
+   * @param builder Builds the artifact to the given file and returns whether or not it succeeded
+   * @return Whether or not the output file contains the artifact
+   */
+  public boolean getOrBuild(String key, File output, Predicate<File> builder) {
+    synchronized (locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length]) {
+      if (get(key, output)) {
+        return true;
+      }
+      if (!builder.test(output)) {
+        return false;
+      }
+      put(key, output);
+      return true;
+    }
+  }
+
+  /**
+   * @return Total size of the stored artifacts in bytes
+   */
+  public long size() {
+    synchronized (index) {
+      return totalBytes;
+    }
+  }
+
+  /**
+   * Deletes least recently used artifacts until the total size is within the budget, skipping
+   * artifacts that are being copied. Must be called while holding the index lock.
+   */
+  private void evict() {
+    Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+    List<String> evicted = new ArrayList<>();
+    long bytes = totalBytes;
+    while (bytes > maxBytes && iterator.hasNext()) {
+      Map.Entry<String, Long> entry = iterator.next();
+      //the most recently used artifact is kept even if it exceeds the budget by itself
+      if (!iterator.hasNext()) {
+        break;
+      }
+      if (pins.containsKey(entry.getKey())) {
+        continue;
+      }
+      evicted.add(entry.getKey());
+      bytes -= entry.getValue();
+    }
+    evicted.forEach(this::forget);
+  }
+
+  /**
+   * Deletes temporary files that puts of crashed processes left behind. Files younger than an hour
+   * may belong to a put of another process that is still running.
+   */
+  private void deleteStaleTemps() {
+    File[] temps = new File(dir, "tmp").listFiles();
+    if (temps == null) {
+      return;
+    }
+    long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+    for (File temp : temps) {
+      if (temp.isFile() && temp.lastModified() < cutoff) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * Removes an artifact from the index and deletes it. Must be called while holding the index
+   * lock.
+   */
+  private void forget(String key) {
+    Long size = index.remove(key);
+    if (size != null) {
+      totalBytes -= size;
+    }
+    artifactFile(key).delete();
+  }
+
+  /**
+   * Artifacts are spread over subdirectories by the first two characters of their key, to keep
+   * directories small.
+   */
+  private File artifactFile(String key) {
+    return new File(new File(dir, key.substring(0, 2)), key + ".jar");
+  }
+
+}
@@ -0,0 +1,275 @@
+package io.deki.dsdn.compile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Records the state of an output directory after a compilation: the content hash of every source
+ * file, the classes each source file generated and the classes each generated class refers to.
+ * Incremental compilation compares the manifest against the current sources to find out what has
+ * to be recompiled.
+ *
+ * <p>The manifest is stored as a plain text file with one tab separated record per line.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class BuildManifest {
+
+  /**
+   * Format version, bumped whenever the layout of the manifest file changes
+   */
+  private static final String VERSION = "1";
+
+  /**
+   * Fingerprint of everything outside of the sources that affects the compiler output
+   */
+  private final String environment;
+
+  /**
+   * Content hash per source file, keyed by the path of the file relative to the source directory
+   */
+  private final Map<String, String> hashes = new TreeMap<>();
+
+  /**
+   * Binary names of the classes generated per source file
+   */
+  private final Map<String, Set<String>> classes = new HashMap<>();
+
+  /**
+   * Referenced classes per generated class
+   */
+  private final Map<String, Set<String>> references = new HashMap<>();
+
+  /**
+   * Generated classes that declare non-private compile-time constants
+   */
+  private final Set<String> constantHolders = new HashSet<>();
+
+  public BuildManifest(String environment) {
+    this.environment = environment;
+  }
+
+  public String getEnvironment() {
+    return environment;
+  }
+
+  public Set<String> getSources() {
+    return hashes.keySet();
+  }
+
+  public String getHash(String source) {
+    return hashes.get(source);
+  }
+
+  public Set<String> getClasses(String source) {
+    return classes.getOrDefault(source, new HashSet<>());
+  }
+
+  public boolean declaresConstants(String className) {
+    return constantHolders.contains(className);
+  }
+
+  /**
+   * Records a successfully compiled source file, replacing whatever was known about it.
+   *
+   * @param source    Path of the source file relative to the source directory
+   * @param hash      Content hash of the source file
+   * @param generated Information about each class the source file generated
+   */
+  public void record(String source, String hash, Collection<ClassFileInfo> generated) {
+    remove(source);
+    hashes.put(source, hash);
+    Set<String> names = new HashSet<>();
+    for (ClassFileInfo info : generated) {
+      names.add(info.getName());
+      references.put(info.getName(), new HashSet<>(info.getReferences()));
+      if (info.declaresConstants()) {
+        constantHolders.add(info.getName());
+      }
+    }
+    classes.put(source, names);
+  }
+
+  /**
+   * Forgets a source file and every class it generated.
+   *
+   * @param source Path of the source file relative to the source directory
+   */
+  public void remove(String source) {
+    hashes.remove(source);
+    Set<String> generated = classes.remove(source);
+    if (generated != null) {
+      for (String name : generated) {
+        references.remove(name);
+        constantHolders.remove(name);
+      }
+    }
+  }
+
+  /**
+   * Finds every source file that generated a class referring to one of the given classes.
+   *
+   * @param changed Binary names of the classes that changed
+   * @return Paths of the dependent source files
+   */
+  public Set<String> getDependents(Set<String> changed) {
+    Set<String> dependents = new HashSet<>();
+    for (Map.Entry<String, Set<String>> entry : classes.entrySet()) {
+      for (String name : entry.getValue()) {
+        Set<String> referenced = references.get(name);
+        if (referenced != null && !Collections.disjoint(referenced, changed)) {
+          dependents.add(entry.getKey());
+          break;
+        }
+      }
+    }
+    return dependents;
+  }
+
+  /**
+   * Reads a manifest from disk.
+   *
+   * @param file File to read from
+   * @return The manifest, or null if the file doesn't exist or couldn't be parsed
+   */
+  public static BuildManifest read(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String[] header = reader.readLine().split("\t", 2);
+      if (header.length != 2 || !VERSION.equals(header[0])) {
+        return null;
+      }
+      BuildManifest manifest = new BuildManifest(header[1]);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] record = line.split("\t", -1);
+        if ("S".equals(record[0]) && record.length == 3) {
+          manifest.hashes.put(record[2], record[1]);
+          manifest.classes.put(record[2], new HashSet<>());
+        } else if ("C".equals(record[0]) && record.length == 5) {
+          manifest.classes.computeIfAbsent(record[4], source -> new HashSet<>()).add(record[1]);
+          if ("1".equals(record[2])) {
+            manifest.constantHolders.add(record[1]);
+          }
+          Set<String> referenced = new HashSet<>();
+          if (!record[3].isEmpty()) {
+            referenced.addAll(Arrays.asList(record[3].split(",")));
+          }
+          manifest.references.put(record[1], referenced);
+        } else {
+          return null;
+        }
+      }
+      return manifest;
+    } catch (IOException | RuntimeException e) {
+      e.printStackTrace();
+    }
+    return null;
+  }
+
+  /**
+   * Writes the manifest to disk. References to classes outside of the manifest, like JDK and
+   * library classes, are left out to keep the file small.
+   *
+   * @param file File to write to. If the file already exists it will be overwritten.
+   * @throws IOException If the file couldn't be written
+   */
+  public void write(File file) throws IOException {
+    Set<String> known = new HashSet<>(references.keySet());
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(VERSION + "\t" + environment + "\n");
+      for (Map.Entry<String, String> entry : hashes.entrySet()) {
+        String source = entry.getKey();
+        writer.write("S\t" + entry.getValue() + "\t" + source + "\n");
+        for (String name : getClasses(source)) {
+          StringBuilder referenced = new StringBuilder();
+          for (String reference : references.getOrDefault(name, new HashSet<>())) {
+            if (known.contains(reference)) {
+              if (referenced.length() > 0) {
+                referenced.append(',');
+              }
+              referenced.append(reference);
+            }
+          }
+          writer.write("C\t" + name + "\t" + (constantHolders.contains(name) ? "1" : "0") + "\t"
+              + referenced + "\t" + source + "\n");
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculates the SHA-256 hash of a file's contents.
+   *
+   * @param file File to hash
+   * @return Hex encoded hash
+   * @throws IOException If the file couldn't be read
+   */
+  public static String hash(File file) throws IOException {
+    MessageDigest digest = sha256();
+    byte[] buffer = new byte[8192];
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Calculates the SHA-256 hash of a string.
+   *
+   * @param value String to hash
+   * @return Hex encoded hash
+   */
+  public static String hash(String value) {
+    return hash(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Calculates the SHA-256 hash of a byte array.
+   *
+   * @param value Bytes to hash
+   * @return Hex encoded hash
+   */
+  public static String hash(byte[] value) {
+    return toHex(sha256().digest(value));
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      //every java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder builder = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      builder.append(String.format("%02x", b));
+    }
+    return builder.toString();
+  }
+
+}
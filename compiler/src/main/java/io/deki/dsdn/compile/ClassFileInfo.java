@@ -0,0 +1,187 @@
+package io.deki.dsdn.compile;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal class file reader that extracts what incremental compilation needs to know about a
+ * compiled class: which other classes it refers to, and whether it declares constants that other
+ * classes may have inlined at compile time.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class ClassFileInfo {
+
+  /**
+   * Matches class types inside of field, method and generic signature descriptors
+   */
+  private static final Pattern DESCRIPTOR_TYPE = Pattern.compile("L([\\w/$]+)[;<]");
+
+  /**
+   * Binary name of the class itself
+   */
+  private final String name;
+
+  /**
+   * Binary names of every other class referenced by the class
+   */
+  private final Set<String> references;
+
+  /**
+   * Whether or not the class declares a non-private compile-time constant
+   */
+  private final boolean declaresConstants;
+
+  private ClassFileInfo(String name, Set<String> references, boolean declaresConstants) {
+    this.name = name;
+    this.references = Collections.unmodifiableSet(references);
+    this.declaresConstants = declaresConstants;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Set<String> getReferences() {
+    return references;
+  }
+
+  /**
+   * Classes that use a compile-time constant get the value inlined, without any reference back to
+   * the declaring class. Changes to a class that declares constants can therefore not be traced to
+   * the classes that use them.
+   *
+   * @return Whether or not the class declares a non-private compile-time constant
+   */
+  public boolean declaresConstants() {
+    return declaresConstants;
+  }
+
+  /**
+   * Parses a class file.
+   *
+   * @param stream Stream of the class file, will not be closed
+   * @return The parsed information
+   * @throws IOException If the stream couldn't be read or does not contain a valid class file
+   */
+  public static ClassFileInfo read(InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(stream);
+    if (in.readInt() != 0xCAFEBABE) {
+      throw new IOException("Not a class file");
+    }
+    //minor and major version
+    in.skipBytes(4);
+    int count = in.readUnsignedShort();
+    String[] utf8 = new String[count];
+    int[] classNames = new int[count];
+    for (int i = 1; i < count; i++) {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case 1:
+          utf8[i] = in.readUTF();
+          break;
+        case 7:
+          classNames[i] = in.readUnsignedShort();
+          break;
+        case 8:
+        case 16:
+        case 19:
+        case 20:
+          in.skipBytes(2);
+          break;
+        case 15:
+          in.skipBytes(3);
+          break;
+        case 3:
+        case 4:
+        case 9:
+        case 10:
+        case 11:
+        case 12:
+        case 17:
+        case 18:
+          in.skipBytes(4);
+          break;
+        case 5:
+        case 6:
+          //8 byte constants take up two slots in the pool
+          in.skipBytes(8);
+          i++;
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+    Set<String> references = new HashSet<>();
+    for (int i = 1; i < count; i++) {
+      if (classNames[i] == 0) {
+        continue;
+      }
+      String className = utf8[classNames[i]];
+      if (className.startsWith("[")) {
+        addDescriptorTypes(className, references);
+      } else {
+        references.add(toBinaryName(className));
+      }
+    }
+    //descriptors and generic signatures refer to classes that have no class entry of their own
+    for (String value : utf8) {
+      if (value != null && value.indexOf(';') > 0) {
+        addDescriptorTypes(value, references);
+      }
+    }
+    //access flags
+    in.skipBytes(2);
+    String name = toBinaryName(utf8[classNames[in.readUnsignedShort()]]);
+    references.remove(name);
+    //super class and interfaces, already covered by the constant pool
+    in.skipBytes(2);
+    in.skipBytes(2 * in.readUnsignedShort());
+    boolean constants = false;
+    int fields = in.readUnsignedShort();
+    for (int i = 0; i < fields; i++) {
+      int access = in.readUnsignedShort();
+      //name and descriptor
+      in.skipBytes(4);
+      int attributes = in.readUnsignedShort();
+      for (int j = 0; j < attributes; j++) {
+        String attribute = utf8[in.readUnsignedShort()];
+        in.skipBytes(in.readInt());
+        if ("ConstantValue".equals(attribute) && !Modifier.isPrivate(access)) {
+          constants = true;
+        }
+      }
+    }
+    return new ClassFileInfo(name, references, constants);
+  }
+
+  /**
+   * Collects every class type mentioned in a descriptor or signature.
+   *
+   * @param descriptor Descriptor to search through
+   * @param references Set to add the binary names of the classes to
+   */
+  private static void addDescriptorTypes(String descriptor, Set<String> references) {
+    Matcher matcher = DESCRIPTOR_TYPE.matcher(descriptor);
+    while (matcher.find()) {
+      references.add(toBinaryName(matcher.group(1)));
+    }
+  }
+
+  /**
+   * @param internalName Class name in internal form, like java/lang/String
+   * @return Class name in binary form, like java.lang.String
+   */
+  private static String toBinaryName(String internalName) {
+    return internalName.replace('/', '.');
+  }
+
+}
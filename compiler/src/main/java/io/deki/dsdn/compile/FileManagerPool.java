@@ -0,0 +1,67 @@
+package io.deki.dsdn.compile;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Pool of warm file managers for in-process compilations. Every file manager keeps the platform
+ * classes it has opened cached, and is used by one compilation at a time. At most one file manager
+ * per worker is created, compilations beyond that wait for a file manager to be returned.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class FileManagerPool {
+
+  private final JavaCompiler compiler;
+
+  /**
+   * Maximum number of file managers, and therefore of concurrent compilations
+   */
+  private final int workers;
+
+  private final BlockingQueue<StandardJavaFileManager> idle = new LinkedBlockingQueue<>();
+
+  /**
+   * Number of file managers created so far
+   */
+  private int created;
+
+  public FileManagerPool(JavaCompiler compiler, int workers) {
+    this.compiler = compiler;
+    this.workers = workers;
+  }
+
+  /**
+   * Takes an idle file manager from the pool, creating one if every file manager is in use and
+   * the pool isn't full yet.
+   *
+   * @return A file manager, which must be returned with {@link #release(StandardJavaFileManager)}
+   * @throws InterruptedException If interrupted while waiting for a file manager
+   */
+  public StandardJavaFileManager acquire() throws InterruptedException {
+    StandardJavaFileManager manager = idle.poll();
+    if (manager != null) {
+      return manager;
+    }
+    synchronized (this) {
+      if (created < workers) {
+        created++;
+        return compiler.getStandardFileManager(null, null, null);
+      }
+    }
+    return idle.take();
+  }
+
+  /**
+   * Returns a file manager to the pool.
+   *
+   * @param manager File manager taken with {@link #acquire()}
+   */
+  public void release(StandardJavaFileManager manager) {
+    idle.offer(manager);
+  }
+
+}
@@ -0,0 +1,155 @@
+package io.deki.dsdn.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shares {@link LibraryIndex library indexes} between all compilations in the JVM. Libraries are
+ * identified by the hash of their contents, so the same SDK jar is only indexed once, no matter
+ * where it is located or how many builds use it.
+ *
+ * <p>Only the most recently used indexes and hashes are kept in memory. Index files that haven't
+ * been used for {@link #MAX_AGE} are deleted from the cache directory, see {@link #clean(long)}.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class LibraryCache {
+
+  /**
+   * Directory the index and blob files are stored in
+   */
+  private static final File CACHE_DIR = new File(System.getProperty("user.home")
+      + File.separator + "DSDN" + File.separator + "library-cache");
+
+  /**
+   * Number of opened indexes kept in memory
+   */
+  private static final int MAX_INDEXES = 256;
+
+  /**
+   * Number of library hashes kept in memory
+   */
+  private static final int MAX_HASHES = 4096;
+
+  /**
+   * Milliseconds after which unused index and blob files are deleted
+   */
+  public static final long MAX_AGE = TimeUnit.DAYS.toMillis(30);
+
+  /**
+   * Library hashes, keyed by path, size and modification time of the library, so unchanged
+   * libraries don't have to be read again to find their hash
+   */
+  private static final Map<String, String> HASHES = lru(MAX_HASHES);
+
+  /**
+   * Opened indexes, keyed by library hash. Evicted indexes stay usable by the compilations that
+   * hold them, their mapping is released once they're no longer referenced.
+   */
+  private static final Map<String, LibraryIndex> INDEXES = lru(MAX_INDEXES);
+
+  /**
+   * Whether or not the cache directory has been cleaned in this JVM
+   */
+  private static final AtomicBoolean CLEANED = new AtomicBoolean();
+
+  /**
+   * Looks up the index of a library jar, creating it if no compilation has used the library
+   * before.
+   *
+   * @param jar Library jar
+   * @return Index of the library
+   * @throws IOException If the library couldn't be indexed
+   */
+  public static LibraryIndex get(File jar) throws IOException {
+    if (CLEANED.compareAndSet(false, true)) {
+      clean(MAX_AGE);
+    }
+    String hash = hash(jar);
+    LibraryIndex index = INDEXES.get(hash);
+    if (index == null) {
+      //indexing the same library twice at once is harmless, both results are identical
+      index = LibraryIndex.open(jar, hash, CACHE_DIR);
+      //marks the files as used, so they aren't cleaned while the library is still built against
+      new File(CACHE_DIR, hash + ".idx").setLastModified(System.currentTimeMillis());
+      LibraryIndex previous = INDEXES.putIfAbsent(hash, index);
+      if (previous != null) {
+        index = previous;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Hashes the contents of a library, reusing the previous hash if the library hasn't been
+   * modified since.
+   *
+   * @param library Library to hash
+   * @return Hex encoded SHA-256 hash of the library
+   * @throws IOException If the library couldn't be read
+   */
+  public static String hash(File library) throws IOException {
+    String id = library.getAbsolutePath() + ":" + library.length() + ":" + library.lastModified();
+    String hash = HASHES.get(id);
+    if (hash == null) {
+      hash = BuildManifest.hash(library);
+      HASHES.put(id, hash);
+    }
+    return hash;
+  }
+
+  /**
+   * Deletes index and blob files that haven't been opened for a while, and temporary files of
+   * extractions that never finished. Indexes opened in this JVM are kept. Files of libraries that
+   * are still in use by other processes are recreated on their next use.
+   *
+   * @param maxAge Milliseconds since the last use after which files are deleted
+   * @return Number of deleted files
+   */
+  public static int clean(long maxAge) {
+    File[] files = CACHE_DIR.listFiles();
+    if (files == null) {
+      return 0;
+    }
+    long cutoff = System.currentTimeMillis() - maxAge;
+    int deleted = 0;
+    for (File file : files) {
+      String name = file.getName();
+      String hash;
+      File marker;
+      if (name.endsWith(".tmp")) {
+        hash = null;
+        marker = file;
+      } else if (name.endsWith(".idx") || name.endsWith(".bin")) {
+        hash = name.substring(0, name.length() - 4);
+        marker = new File(CACHE_DIR, hash + ".idx");
+      } else {
+        continue;
+      }
+      //a blob without an index is unusable, lastModified of a missing file is 0
+      if (marker.lastModified() < cutoff && (hash == null || !INDEXES.containsKey(hash))
+          && file.delete()) {
+        deleted++;
+      }
+    }
+    return deleted;
+  }
+
+  private static <V> Map<String, V> lru(int capacity) {
+    return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+        return size() > capacity;
+      }
+    });
+  }
+
+}
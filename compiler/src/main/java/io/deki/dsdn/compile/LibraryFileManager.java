@@ -0,0 +1,73 @@
+package io.deki.dsdn.compile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * File manager that serves classes of cached libraries from their {@link LibraryIndex} and
+ * everything else from the delegate. The cached libraries must not be on the classpath of the
+ * delegate.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class LibraryFileManager<M extends JavaFileManager> extends
+    ForwardingJavaFileManager<M> {
+
+  /**
+   * Indexes of the libraries on the classpath, in classpath order
+   */
+  private final List<LibraryIndex> libraries;
+
+  public LibraryFileManager(M fileManager, List<LibraryIndex> libraries) {
+    super(fileManager);
+    this.libraries = libraries;
+  }
+
+  @Override
+  public Iterable<JavaFileObject> list(Location location, String packageName,
+      Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+    Iterable<JavaFileObject> delegated = super.list(location, packageName, kinds, recurse);
+    if (location != StandardLocation.CLASS_PATH || !kinds.contains(JavaFileObject.Kind.CLASS)) {
+      return delegated;
+    }
+    List<JavaFileObject> files = new ArrayList<>();
+    delegated.forEach(files::add);
+    for (LibraryIndex library : libraries) {
+      files.addAll(library.list(packageName, recurse));
+    }
+    return files;
+  }
+
+  @Override
+  public String inferBinaryName(Location location, JavaFileObject file) {
+    if (file instanceof LibraryIndex.ClassFile) {
+      return ((LibraryIndex.ClassFile) file).getBinaryName();
+    }
+    return super.inferBinaryName(location, file);
+  }
+
+  @Override
+  public boolean isSameFile(FileObject a, FileObject b) {
+    if (a instanceof LibraryIndex.ClassFile || b instanceof LibraryIndex.ClassFile) {
+      return a.equals(b);
+    }
+    return super.isSameFile(a, b);
+  }
+
+  /**
+   * The delegate is shared between compilations, so closing this manager must not close it.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+
+}
@@ -0,0 +1,244 @@
+package io.deki.dsdn.compile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Read-only index of the classes in a library jar. The classes are extracted once to an
+ * uncompressed blob file next to the index, which is memory mapped and shared by every
+ * compilation against the library. Compilations read classes straight from the mapping instead of
+ * opening and inflating the jar again.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class LibraryIndex {
+
+  /**
+   * Service file that marks a jar as containing annotation processors
+   */
+  private static final String PROCESSOR_SERVICE =
+      "META-INF/services/javax.annotation.processing.Processor";
+
+  /**
+   * The library jar this index was created from
+   */
+  private final File jar;
+
+  /**
+   * Mapped blob of uncompressed class files. Every reader works on its own duplicate, the position
+   * of this buffer is never changed.
+   */
+  private final MappedByteBuffer blob;
+
+  /**
+   * Classes per package name
+   */
+  private final Map<String, List<ClassFile>> packages;
+
+  /**
+   * Whether or not the jar declares annotation processors
+   */
+  private final boolean processors;
+
+  private LibraryIndex(File jar, MappedByteBuffer blob, Map<String, List<ClassFile>> packages,
+      boolean processors) {
+    this.jar = jar;
+    this.blob = blob;
+    this.packages = packages;
+    this.processors = processors;
+  }
+
+  public File getJar() {
+    return jar;
+  }
+
+  public boolean hasProcessors() {
+    return processors;
+  }
+
+  /**
+   * @param packageName Name of the package, like java.lang
+   * @param recurse     Whether or not to include classes of subpackages
+   * @return Classes in the package
+   */
+  public List<ClassFile> list(String packageName, boolean recurse) {
+    if (!recurse) {
+      return packages.getOrDefault(packageName, Collections.emptyList());
+    }
+    List<ClassFile> classes = new ArrayList<>();
+    String prefix = packageName.isEmpty() ? "" : packageName + ".";
+    for (Map.Entry<String, List<ClassFile>> entry : packages.entrySet()) {
+      if (entry.getKey().equals(packageName) || entry.getKey().startsWith(prefix)) {
+        classes.addAll(entry.getValue());
+      }
+    }
+    return classes;
+  }
+
+  /**
+   * Opens the index of a library, creating the index and blob files in the cache directory if
+   * they don't exist yet.
+   *
+   * @param jar   Library jar
+   * @param hash  Content hash of the jar, names the index and blob files
+   * @param cache Directory the index and blob files are stored in
+   * @return The index
+   * @throws IOException If the jar couldn't be read, or the index couldn't be written or mapped
+   */
+  public static LibraryIndex open(File jar, String hash, File cache) throws IOException {
+    File indexFile = new File(cache, hash + ".idx");
+    File blobFile = new File(cache, hash + ".bin");
+    if (!indexFile.isFile() || !blobFile.isFile()) {
+      extract(jar, indexFile, blobFile);
+    }
+    Map<String, List<ClassFile>> packages = new HashMap<>();
+    boolean processors;
+    MappedByteBuffer blob;
+    try (FileChannel channel = FileChannel.open(blobFile.toPath(), StandardOpenOption.READ)) {
+      blob = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try (BufferedReader reader = Files.newBufferedReader(indexFile.toPath(),
+        StandardCharsets.UTF_8)) {
+      processors = "1".equals(reader.readLine());
+      LibraryIndex index = new LibraryIndex(jar, blob, packages, processors);
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] record = line.split("\t");
+        String name = record[0];
+        int dot = name.lastIndexOf('.');
+        String packageName = dot < 0 ? "" : name.substring(0, dot);
+        packages.computeIfAbsent(packageName, key -> new ArrayList<>()).add(index.new ClassFile(
+            name, Integer.parseInt(record[1]), Integer.parseInt(record[2])));
+      }
+      return index;
+    } catch (RuntimeException e) {
+      throw new IOException("Corrupt library index " + indexFile, e);
+    }
+  }
+
+  /**
+   * Extracts the classes of a jar to a blob file and writes their binary names, offsets and
+   * lengths to an index file. Both files are written to temporary files first and moved in place,
+   * so concurrent readers never see partial files.
+   */
+  private static void extract(File jar, File indexFile, File blobFile) throws IOException {
+    indexFile.getParentFile().mkdirs();
+    File tempIndex = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+    File tempBlob = File.createTempFile(blobFile.getName(), ".tmp", blobFile.getParentFile());
+    try (ZipFile zip = new ZipFile(jar);
+        FileChannel blob = FileChannel.open(tempBlob.toPath(), StandardOpenOption.WRITE);
+        BufferedWriter index = Files.newBufferedWriter(tempIndex.toPath(),
+            StandardCharsets.UTF_8)) {
+      index.write(zip.getEntry(PROCESSOR_SERVICE) != null ? "1\n" : "0\n");
+      long offset = 0;
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName();
+        //versioned classes of multi-release jars and module descriptors aren't on the classpath
+        if (entry.isDirectory() || !name.endsWith(".class") || name.startsWith("META-INF/")
+            || name.endsWith("module-info.class")) {
+          continue;
+        }
+        byte[] data;
+        try (InputStream in = zip.getInputStream(entry)) {
+          data = readFully(in);
+        }
+        if (offset + data.length > Integer.MAX_VALUE) {
+          throw new IOException("Library too large to map: " + jar);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+          blob.write(buffer);
+        }
+        String binaryName = name.substring(0, name.length() - 6).replace('/', '.');
+        index.write(binaryName + "\t" + offset + "\t" + data.length + "\n");
+        offset += data.length;
+      }
+    } catch (IOException e) {
+      tempIndex.delete();
+      tempBlob.delete();
+      throw e;
+    }
+    move(tempBlob, blobFile);
+    move(tempIndex, indexFile);
+  }
+
+  private static void move(File from, File to) throws IOException {
+    try {
+      Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * A class file inside of the mapped blob.
+   */
+  public class ClassFile extends SimpleJavaFileObject {
+
+    private final String binaryName;
+    private final int offset;
+    private final int length;
+
+    ClassFile(String binaryName, int offset, int length) {
+      super(URI.create(jar.toURI() + "!/" + binaryName.replace('.', '/') + ".class"),
+          Kind.CLASS);
+      this.binaryName = binaryName;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    public String getBinaryName() {
+      return binaryName;
+    }
+
+    @Override
+    public InputStream openInputStream() {
+      byte[] data = new byte[length];
+      ByteBuffer view = blob.duplicate();
+      //cast keeps the call compatible with java 8, where position isn't overridden by ByteBuffer
+      ((Buffer) view).position(offset);
+      view.get(data);
+      return new ByteArrayInputStream(data);
+    }
+
+  }
+
+}
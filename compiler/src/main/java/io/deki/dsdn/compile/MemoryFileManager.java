@@ -0,0 +1,95 @@
+package io.deki.dsdn.compile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * File manager that keeps everything the compiler writes to the class output in memory, instead of
+ * writing .class files and generated resources to disk.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class MemoryFileManager<M extends JavaFileManager> extends ForwardingJavaFileManager<M> {
+
+  /**
+   * Contents of every output file, keyed by its path inside of the class output, like
+   * io/deki/dsdn/Compiler.class
+   */
+  private final Map<String, byte[]> outputs;
+
+  /**
+   * @param fileManager File manager to delegate to
+   * @param outputs     Map to store the contents of output files in once they are closed, keyed by
+   *                    their path inside of the class output
+   */
+  public MemoryFileManager(M fileManager, Map<String, byte[]> outputs) {
+    super(fileManager);
+    this.outputs = outputs;
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForOutput(Location location, String className,
+      JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+    if (location != StandardLocation.CLASS_OUTPUT) {
+      return super.getJavaFileForOutput(location, className, kind, sibling);
+    }
+    String path = className.replace('.', '/') + kind.extension;
+    return new MemoryFileObject(path, kind);
+  }
+
+  @Override
+  public FileObject getFileForOutput(Location location, String packageName, String relativeName,
+      FileObject sibling) throws IOException {
+    if (location != StandardLocation.CLASS_OUTPUT) {
+      return super.getFileForOutput(location, packageName, relativeName, sibling);
+    }
+    String path = packageName.isEmpty()
+        ? relativeName : packageName.replace('.', '/') + "/" + relativeName;
+    return new MemoryFileObject(path, JavaFileObject.Kind.OTHER);
+  }
+
+  /**
+   * The delegate is shared between compilations, so closing this manager must not close it.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+
+  /**
+   * Output file that stores its contents in the outputs of the file manager once closed.
+   */
+  private class MemoryFileObject extends SimpleJavaFileObject {
+
+    private final String path;
+
+    MemoryFileObject(String path, Kind kind) {
+      super(URI.create("memory:///" + path), kind);
+      this.path = path;
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      return new ByteArrayOutputStream() {
+        @Override
+        public void close() {
+          synchronized (outputs) {
+            outputs.put(path, toByteArray());
+          }
+        }
+      };
+    }
+
+  }
+
+}
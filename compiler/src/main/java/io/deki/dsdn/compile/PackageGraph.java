@@ -0,0 +1,290 @@
+package io.deki.dsdn.compile;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a set of source files into partitions that can be compiled separately. Source files are
+ * grouped by package, packages depend on the packages they import from, and every strongly
+ * connected group of packages becomes a partition.
+ *
+ * <p>Dependencies are found by reading package and import declarations only, references by fully
+ * qualified name are not detected. A partition can therefore fail to compile on its own even
+ * though the whole set of sources compiles, callers have to be prepared to fall back.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class PackageGraph {
+
+  private static final Pattern PACKAGE =
+      Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;");
+
+  private static final Pattern IMPORT =
+      Pattern.compile("^\\s*import\\s+(?:static\\s+)?([\\w.]+?)(?:\\s*\\.\\s*\\*)?\\s*;");
+
+  /**
+   * Line prefixes of declarations that can't be followed by package or import declarations
+   */
+  private static final Pattern TYPE_DECLARATION = Pattern.compile(
+      "^\\s*(?:public|protected|private|abstract|final|class|interface|enum)\\b");
+
+  /**
+   * Partitions the source files.
+   *
+   * @param sources Source files to partition
+   * @return Partitions in dependency order, every partition comes after its dependencies
+   * @throws IOException If a source file couldn't be read
+   */
+  public static List<Partition> partition(List<File> sources) throws IOException {
+    Map<String, List<File>> packages = new HashMap<>();
+    Map<File, Set<String>> imports = new HashMap<>();
+    for (File source : sources) {
+      Set<String> imported = new HashSet<>();
+      String packageName = scan(source, imported);
+      packages.computeIfAbsent(packageName, key -> new ArrayList<>()).add(source);
+      imports.put(source, imported);
+    }
+    Map<String, Set<String>> edges = new HashMap<>();
+    for (Map.Entry<String, List<File>> entry : packages.entrySet()) {
+      Set<String> dependencies = new HashSet<>();
+      for (File source : entry.getValue()) {
+        for (String name : imports.get(source)) {
+          String dependency = findPackage(name, packages.keySet());
+          if (dependency != null && !dependency.equals(entry.getKey())) {
+            dependencies.add(dependency);
+          }
+        }
+      }
+      edges.put(entry.getKey(), dependencies);
+    }
+    return new Tarjan(packages, edges).run();
+  }
+
+  /**
+   * Reads the package and import declarations at the top of a source file.
+   *
+   * @param source   Source file to read
+   * @param imported Set to add the imported names to
+   * @return Package of the source file, an empty string for the default package
+   */
+  private static String scan(File source, Set<String> imported) throws IOException {
+    String packageName = "";
+    try (BufferedReader reader = Files.newBufferedReader(source.toPath(),
+        StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        Matcher matcher = IMPORT.matcher(line);
+        if (matcher.find()) {
+          imported.add(matcher.group(1).replaceAll("\\s", ""));
+          continue;
+        }
+        matcher = PACKAGE.matcher(line);
+        if (matcher.find()) {
+          packageName = matcher.group(1);
+        } else if (TYPE_DECLARATION.matcher(line).find()) {
+          break;
+        }
+      }
+    } catch (MalformedInputException e) {
+      //not UTF-8, javac will report the problem when it compiles the file
+    }
+    return packageName;
+  }
+
+  /**
+   * An imported name can be a package, a class, a nested class or a static member. The package it
+   * belongs to is the longest prefix that is one of our own packages.
+   *
+   * @return Package of the imported name, or null if it's not one of our packages
+   */
+  private static String findPackage(String name, Set<String> packages) {
+    String candidate = name;
+    while (true) {
+      if (packages.contains(candidate)) {
+        return candidate;
+      }
+      int dot = candidate.lastIndexOf('.');
+      if (dot < 0) {
+        return null;
+      }
+      candidate = candidate.substring(0, dot);
+    }
+  }
+
+  /**
+   * A strongly connected group of packages and the partitions it depends on.
+   */
+  public static class Partition {
+
+    private final Set<String> packages = new LinkedHashSet<>();
+    private final List<File> sources = new ArrayList<>();
+    private final Set<Partition> dependencies = new LinkedHashSet<>();
+
+    public Set<String> getPackages() {
+      return packages;
+    }
+
+    public List<File> getSources() {
+      return sources;
+    }
+
+    /**
+     * @return Partitions this partition imports from directly
+     */
+    public Set<Partition> getDependencies() {
+      return dependencies;
+    }
+
+    /**
+     * @return Partitions this partition imports from directly or indirectly
+     */
+    public Set<Partition> getTransitiveDependencies() {
+      Set<Partition> all = new LinkedHashSet<>();
+      Deque<Partition> pending = new ArrayDeque<>(dependencies);
+      while (!pending.isEmpty()) {
+        Partition partition = pending.pop();
+        if (all.add(partition)) {
+          pending.addAll(partition.dependencies);
+        }
+      }
+      return all;
+    }
+
+    @Override
+    public String toString() {
+      return "Partition" + packages;
+    }
+
+  }
+
+  /**
+   * Tarjan's strongly connected components algorithm. Components are completed after every
+   * component they can reach, so they come out in dependency order.
+   */
+  private static class Tarjan {
+
+    private final Map<String, List<File>> packages;
+    private final Map<String, Set<String>> edges;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final Map<String, Integer> lowLinks = new HashMap<>();
+    private final Deque<String> stack = new ArrayDeque<>();
+    private final Set<String> onStack = new HashSet<>();
+    private final Map<String, Partition> partitions = new HashMap<>();
+    private final List<Partition> ordered = new ArrayList<>();
+
+    Tarjan(Map<String, List<File>> packages, Map<String, Set<String>> edges) {
+      this.packages = packages;
+      this.edges = edges;
+    }
+
+    List<Partition> run() {
+      List<String> names = new ArrayList<>(packages.keySet());
+      Collections.sort(names);
+      for (String name : names) {
+        if (!indexes.containsKey(name)) {
+          visit(name);
+        }
+      }
+      return ordered;
+    }
+
+    /**
+     * Visits the packages reachable from a package depth first. The path of the search is kept on
+     * the heap instead of the call stack, deep import chains can't overflow it.
+     */
+    private void visit(String root) {
+      Deque<Frame> path = new ArrayDeque<>();
+      path.push(open(root));
+      while (!path.isEmpty()) {
+        Frame frame = path.peek();
+        if (frame.dependencies.hasNext()) {
+          String dependency = frame.dependencies.next();
+          if (!indexes.containsKey(dependency)) {
+            path.push(open(dependency));
+          } else if (onStack.contains(dependency)) {
+            lowLinks.put(frame.name, Math.min(lowLinks.get(frame.name), indexes.get(dependency)));
+          }
+          continue;
+        }
+        path.pop();
+        close(frame.name);
+        if (!path.isEmpty()) {
+          String parent = path.peek().name;
+          lowLinks.put(parent, Math.min(lowLinks.get(parent), lowLinks.get(frame.name)));
+        }
+      }
+    }
+
+    private Frame open(String name) {
+      int index = indexes.size();
+      indexes.put(name, index);
+      lowLinks.put(name, index);
+      stack.push(name);
+      onStack.add(name);
+      return new Frame(name, edges.get(name).iterator());
+    }
+
+    /**
+     * Completes the component of a package once all of its dependencies have been visited, if the
+     * package is the root of its component.
+     */
+    private void close(String name) {
+      if (lowLinks.get(name).equals(indexes.get(name))) {
+        Partition partition = new Partition();
+        String member;
+        do {
+          member = stack.pop();
+          onStack.remove(member);
+          partition.packages.add(member);
+          partition.sources.addAll(packages.get(member));
+          partitions.put(member, partition);
+        } while (!member.equals(name));
+        //every dependency outside of the component has been completed already
+        for (String packageName : partition.packages) {
+          for (String dependency : edges.get(packageName)) {
+            Partition target = partitions.get(dependency);
+            if (target != partition) {
+              partition.dependencies.add(target);
+            }
+          }
+        }
+        ordered.add(partition);
+      }
+    }
+
+    /**
+     * A package on the path of the search, with the dependencies that are left to visit.
+     */
+    private static class Frame {
+
+      private final String name;
+      private final Iterator<String> dependencies;
+
+      Frame(String name, Iterator<String> dependencies) {
+        this.name = name;
+        this.dependencies = dependencies;
+      }
+
+    }
+
+  }
+
+}
@@ -0,0 +1,176 @@
+package io.deki.dsdn.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the .java files of a source tree. Subdirectories are walked in parallel, version control
+ * and build output directories are skipped, and the listing of every directory is cached by
+ * modification time, so indexing an unchanged tree only has to check the directories.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class SourceIndexer {
+
+  /**
+   * Directories that are skipped anywhere in the tree
+   */
+  private static final Set<String> IGNORED = Collections.singleton(".git");
+
+  /**
+   * Build output directories, skipped at the root of the tree and next to a build file. Deeper in
+   * the tree they could just as well be a package called build.
+   */
+  private static final Set<String> BUILD_OUTPUTS = new HashSet<>(Arrays.asList("target", "build"));
+
+  /**
+   * Files that mark a directory as the root of a maven or gradle project
+   */
+  private static final Set<String> BUILD_FILES =
+      new HashSet<>(Arrays.asList("pom.xml", "build.gradle", "build.gradle.kts"));
+
+  /**
+   * Directories modified less than this many milliseconds ago aren't cached. A change within the
+   * same timestamp tick as the listing would otherwise go unnoticed.
+   */
+  private static final long MODIFICATION_GRACE = 2000;
+
+  /**
+   * Maximum number of cached directory listings before the cache is cleared
+   */
+  private static final int MAX_CACHED_DIRECTORIES = 200_000;
+
+  /**
+   * Cached listings keyed by absolute directory path
+   */
+  private static final Map<Path, Listing> LISTINGS = new ConcurrentHashMap<>();
+
+  /**
+   * Indexes every .java file below a directory.
+   *
+   * @param dir Root of the source tree
+   * @return Source files with absolute, normalized paths, sorted by path
+   * @throws IOException If a directory couldn't be read
+   */
+  public static List<File> index(File dir) throws IOException {
+    if (LISTINGS.size() > MAX_CACHED_DIRECTORIES) {
+      LISTINGS.clear();
+    }
+    List<File> sources;
+    try {
+      sources = new IndexTask(dir.toPath().toAbsolutePath().normalize(), true).invoke();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    Collections.sort(sources);
+    return sources;
+  }
+
+  /**
+   * Lists a directory, or reuses the cached listing if the directory hasn't been modified since.
+   */
+  private static Listing list(Path dir, boolean root) throws IOException {
+    long modified = Files.getLastModifiedTime(dir).toMillis();
+    Listing cached = LISTINGS.get(dir);
+    if (cached != null && cached.modified == modified && cached.root == root) {
+      return cached;
+    }
+    List<String> names = new ArrayList<>();
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+      for (Path entry : entries) {
+        names.add(entry.getFileName().toString());
+      }
+    }
+    boolean project = root || names.stream().anyMatch(BUILD_FILES::contains);
+    List<File> sources = new ArrayList<>();
+    List<Path> directories = new ArrayList<>();
+    for (String name : names) {
+      Path entry = dir.resolve(name);
+      if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+        if (!IGNORED.contains(name) && !(project && BUILD_OUTPUTS.contains(name))) {
+          directories.add(entry);
+        }
+      } else if (name.endsWith(".java")) {
+        sources.add(entry.toFile());
+      }
+    }
+    Listing listing = new Listing(modified, root, sources, directories);
+    if (System.currentTimeMillis() - modified > MODIFICATION_GRACE) {
+      LISTINGS.put(dir, listing);
+    }
+    return listing;
+  }
+
+  /**
+   * Indexes a directory and forks a task per subdirectory.
+   */
+  private static class IndexTask extends RecursiveTask<List<File>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Path dir;
+    private final boolean root;
+
+    IndexTask(Path dir, boolean root) {
+      this.dir = dir;
+      this.root = root;
+    }
+
+    @Override
+    protected List<File> compute() {
+      Listing listing;
+      try {
+        listing = list(dir, root);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      List<IndexTask> tasks = new ArrayList<>();
+      for (Path directory : listing.directories) {
+        tasks.add(new IndexTask(directory, false));
+      }
+      ForkJoinTask.invokeAll(tasks);
+      List<File> sources = new ArrayList<>(listing.sources);
+      for (IndexTask task : tasks) {
+        sources.addAll(task.join());
+      }
+      return sources;
+    }
+
+  }
+
+  /**
+   * Source files and subdirectories of a directory at a point in time.
+   */
+  private static class Listing {
+
+    private final long modified;
+    private final boolean root;
+    private final List<File> sources;
+    private final List<Path> directories;
+
+    Listing(long modified, boolean root, List<File> sources, List<Path> directories) {
+      this.modified = modified;
+      this.root = root;
+      this.sources = sources;
+      this.directories = directories;
+    }
+
+  }
+
+}
@@ -0,0 +1,56 @@
+package io.deki.dsdn.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+
+/**
+ * File manager that records which classes the compiler generates from which source file.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class TrackingFileManager<M extends JavaFileManager> extends ForwardingJavaFileManager<M> {
+
+  /**
+   * Binary names of the classes generated per source file
+   */
+  private final Map<File, Set<String>> generated;
+
+  /**
+   * @param fileManager File manager to delegate to
+   * @param generated   Map to record generated classes in, keyed by the absolute, normalized path
+   *                    of their source file
+   */
+  public TrackingFileManager(M fileManager, Map<File, Set<String>> generated) {
+    super(fileManager);
+    this.generated = generated;
+  }
+
+  @Override
+  public JavaFileObject getJavaFileForOutput(Location location, String className,
+      JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+    if (kind == JavaFileObject.Kind.CLASS && sibling != null
+        && "file".equals(sibling.toUri().getScheme())) {
+      //same form as the indexed source files, so lookups match
+      File source = new File(sibling.toUri()).toPath().toAbsolutePath().normalize().toFile();
+      generated.computeIfAbsent(source, key -> new HashSet<>()).add(className);
+    }
+    return super.getJavaFileForOutput(location, className, kind, sibling);
+  }
+
+  /**
+   * The delegate is shared between compilations, so closing this manager must not close it.
+   */
+  @Override
+  public void close() throws IOException {
+    flush();
+  }
+
+}
@@ -0,0 +1,166 @@
+package io.deki.dsdn.jar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copy/insert delta encoding between two byte arrays. The delta describes the new bytes as copies
+ * of ranges of the old bytes and literal insertions, so small edits to large entries only cost a
+ * few bytes. Matches are found by indexing the old bytes in fixed size blocks and extending every
+ * block match in both directions.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class BinaryDelta {
+
+  /**
+   * Size of the blocks the old bytes are indexed in, and the minimum length of a copy
+   */
+  private static final int BLOCK = 16;
+
+  private static final int OP_COPY = 0;
+  private static final int OP_INSERT = 1;
+  private static final int OP_END = 2;
+
+  /**
+   * Creates a delta that turns the old bytes into the new bytes.
+   *
+   * @param previous Old bytes
+   * @param current  New bytes
+   * @return The encoded delta
+   */
+  public static byte[] diff(byte[] previous, byte[] current) {
+    Map<Long, Integer> blocks = new HashMap<>();
+    for (int i = 0; i + BLOCK <= previous.length; i += BLOCK) {
+      blocks.putIfAbsent(hash(previous, i), i);
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int literalStart = 0;
+    int position = 0;
+    while (position + BLOCK <= current.length) {
+      Integer candidate = blocks.get(hash(current, position));
+      if (candidate == null || !regionMatches(previous, candidate, current, position)) {
+        position++;
+        continue;
+      }
+      int start = candidate;
+      int end = candidate + BLOCK;
+      int newStart = position;
+      int newEnd = position + BLOCK;
+      //extend backwards into the pending literal, and forwards as far as the bytes match
+      while (start > 0 && newStart > literalStart && previous[start - 1] == current[newStart - 1]) {
+        start--;
+        newStart--;
+      }
+      while (end < previous.length && newEnd < current.length
+          && previous[end] == current[newEnd]) {
+        end++;
+        newEnd++;
+      }
+      writeInsert(out, current, literalStart, newStart);
+      out.write(OP_COPY);
+      writeVarInt(out, start);
+      writeVarInt(out, end - start);
+      position = newEnd;
+      literalStart = newEnd;
+    }
+    writeInsert(out, current, literalStart, current.length);
+    out.write(OP_END);
+    return out.toByteArray();
+  }
+
+  /**
+   * Applies a delta created by {@link #diff(byte[], byte[])} to the old bytes.
+   *
+   * @param previous Old bytes
+   * @param delta    The encoded delta
+   * @return New bytes
+   * @throws IOException If the delta is malformed or doesn't fit the old bytes
+   */
+  public static byte[] patch(byte[] previous, byte[] delta) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int[] position = {0};
+    while (true) {
+      int op = read(delta, position);
+      if (op == OP_END) {
+        return out.toByteArray();
+      }
+      if (op == OP_COPY) {
+        int offset = readVarInt(delta, position);
+        int length = readVarInt(delta, position);
+        if (offset < 0 || length < 0 || length > previous.length - offset) {
+          throw new IOException("Delta copies outside of the old bytes");
+        }
+        out.write(previous, offset, length);
+      } else if (op == OP_INSERT) {
+        int length = readVarInt(delta, position);
+        if (length < 0 || length > delta.length - position[0]) {
+          throw new IOException("Delta inserts past its end");
+        }
+        out.write(delta, position[0], length);
+        position[0] += length;
+      } else {
+        throw new IOException("Unknown delta operation " + op);
+      }
+    }
+  }
+
+  private static void writeInsert(ByteArrayOutputStream out, byte[] data, int from, int to) {
+    if (to > from) {
+      out.write(OP_INSERT);
+      writeVarInt(out, to - from);
+      out.write(data, from, to - from);
+    }
+  }
+
+  /**
+   * Writes a variable length unsigned int, 7 bits per byte.
+   */
+  private static void writeVarInt(ByteArrayOutputStream out, int value) {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  private static int read(byte[] data, int[] position) throws IOException {
+    if (position[0] >= data.length) {
+      throw new IOException("Delta ends unexpectedly");
+    }
+    return data[position[0]++] & 0xFF;
+  }
+
+  private static int readVarInt(byte[] data, int[] position) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = read(data, position);
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable length int");
+  }
+
+  private static long hash(byte[] data, int offset) {
+    long hash = 1125899906842597L;
+    for (int i = offset; i < offset + BLOCK; i++) {
+      hash = 31 * hash + data[i];
+    }
+    return hash;
+  }
+
+  private static boolean regionMatches(byte[] a, int aOffset, byte[] b, int bOffset) {
+    for (int i = 0; i < BLOCK; i++) {
+      if (a[aOffset + i] != b[bOffset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
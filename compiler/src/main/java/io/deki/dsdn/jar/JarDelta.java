@@ -0,0 +1,222 @@
+package io.deki.dsdn.jar;
+
+import io.deki.dsdn.compile.BuildManifest;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Creates and applies patches between two versions of a jar, so end users only have to download
+ * the entries that changed. A patch lists the added, changed and removed entries, optionally with
+ * changed entries encoded as a {@link BinaryDelta} against their previous contents.
+ *
+ * <p>Patches are verified by content: the digest of the previous jar's entries must match before a
+ * patch is applied, and the digest of the patched entries must match the new jar afterwards. The
+ * patched jar is written with the {@link JarWriter}, so for jars created by the JarWriter the result
+ * is byte-identical to the new jar.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class JarDelta {
+
+  /**
+   * Identifies patch files and the version of their format
+   */
+  private static final byte[] MAGIC = "DSDNDLT1".getBytes(StandardCharsets.US_ASCII);
+
+  private static final int OP_ADD = 1;
+  private static final int OP_REPLACE = 2;
+  private static final int OP_DIFF = 3;
+  private static final int OP_REMOVE = 4;
+  private static final int OP_END = 0;
+
+  /**
+   * Creates a patch between two versions of a jar.
+   *
+   * @param previous   Jar the end users have
+   * @param current    Jar the end users should have after patching
+   * @param patch      File to write the patch to. If the file already exists it will be
+   *                   overwritten.
+   * @param binaryDiff Whether or not to encode changed entries as a delta against their previous
+   *                   contents, where that's smaller than the new contents
+   * @throws IOException If a jar couldn't be read or the patch couldn't be written
+   */
+  public static void create(File previous, File current, File patch, boolean binaryDiff)
+      throws IOException {
+    Map<String, byte[]> before = readEntries(previous);
+    Map<String, byte[]> after = readEntries(current);
+    try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(patch.toPath())),
+        new Deflater(Deflater.BEST_COMPRESSION)))) {
+      out.write(MAGIC);
+      out.writeUTF(digest(before));
+      out.writeUTF(digest(after));
+      for (Map.Entry<String, byte[]> entry : after.entrySet()) {
+        byte[] old = before.get(entry.getKey());
+        byte[] data = entry.getValue();
+        if (old == null) {
+          writeEntry(out, OP_ADD, entry.getKey(), data);
+        } else if (!Arrays.equals(old, data)) {
+          byte[] delta = binaryDiff ? BinaryDelta.diff(old, data) : null;
+          if (delta != null && delta.length < data.length) {
+            writeEntry(out, OP_DIFF, entry.getKey(), delta);
+          } else {
+            writeEntry(out, OP_REPLACE, entry.getKey(), data);
+          }
+        }
+      }
+      for (String name : before.keySet()) {
+        if (!after.containsKey(name)) {
+          out.writeByte(OP_REMOVE);
+          out.writeUTF(name);
+        }
+      }
+      out.writeByte(OP_END);
+    }
+  }
+
+  /**
+   * Applies a patch to a jar.
+   *
+   * @param previous Jar to patch, is left untouched
+   * @param patch    Patch created by {@link #create(File, File, File, boolean)}
+   * @param output   File to write the patched jar to. If the file already exists it will be
+   *                 overwritten.
+   * @throws IOException If the patch is malformed, was created for a different jar, or the patched
+   *                     contents don't match the new jar
+   */
+  public static void apply(File previous, File patch, File output) throws IOException {
+    Map<String, byte[]> entries = readEntries(previous);
+    try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+        new BufferedInputStream(Files.newInputStream(patch.toPath()))))) {
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if (!Arrays.equals(magic, MAGIC)) {
+        throw new IOException("Not a jar patch: " + patch);
+      }
+      String expectedBefore = in.readUTF();
+      String expectedAfter = in.readUTF();
+      if (!expectedBefore.equals(digest(entries))) {
+        throw new IOException("Patch " + patch + " was not created for " + previous);
+      }
+      int op;
+      while ((op = in.readUnsignedByte()) != OP_END) {
+        String name = in.readUTF();
+        switch (op) {
+          case OP_ADD:
+          case OP_REPLACE:
+            entries.put(name, readData(in));
+            break;
+          case OP_DIFF:
+            byte[] old = entries.get(name);
+            if (old == null) {
+              throw new IOException("Patch changes missing entry " + name);
+            }
+            entries.put(name, BinaryDelta.patch(old, readData(in)));
+            break;
+          case OP_REMOVE:
+            entries.remove(name);
+            break;
+          default:
+            throw new IOException("Unknown patch operation " + op);
+        }
+      }
+      if (!expectedAfter.equals(digest(entries))) {
+        throw new IOException("Patched contents of " + previous + " don't match the new jar");
+      }
+    }
+    new JarWriter().write(entries, output);
+  }
+
+  /**
+   * Calculates a digest of the names and contents of jar entries. Unlike a hash of the jar file
+   * itself, the digest doesn't depend on compression, timestamps or entry order.
+   *
+   * @param entries Contents of the entries, keyed and sorted by name
+   * @return Hex encoded digest
+   */
+  public static String digest(Map<String, byte[]> entries) {
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+      builder.append(entry.getKey()).append('\t')
+          .append(BuildManifest.hash(entry.getValue())).append('\n');
+    }
+    return BuildManifest.hash(builder.toString());
+  }
+
+  /**
+   * Reads every file entry of a jar. Directory entries are left out, the JarWriter recreates them.
+   *
+   * @param jar Jar to read
+   * @return Contents of the entries, keyed and sorted by name
+   * @throws IOException If the jar couldn't be read
+   */
+  public static Map<String, byte[]> readEntries(File jar) throws IOException {
+    Map<String, byte[]> entries = new TreeMap<>();
+    try (ZipFile zip = new ZipFile(jar)) {
+      Enumeration<? extends ZipEntry> enumeration = zip.entries();
+      while (enumeration.hasMoreElements()) {
+        ZipEntry entry = enumeration.nextElement();
+        if (entry.isDirectory()) {
+          continue;
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+          ByteArrayOutputStream out = new ByteArrayOutputStream();
+          byte[] buffer = new byte[8192];
+          int read;
+          while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+          }
+          entries.put(entry.getName(), out.toByteArray());
+        }
+      }
+    }
+    return entries;
+  }
+
+  private static void writeEntry(DataOutputStream out, int op, String name, byte[] data)
+      throws IOException {
+    out.writeByte(op);
+    out.writeUTF(name);
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  private static byte[] readData(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Malformed patch entry length " + length);
+    }
+    //the length is untrusted until the digests are checked, so the buffer only grows with the data
+    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(length, 8192));
+    byte[] buffer = new byte[8192];
+    int remaining = length;
+    while (remaining > 0) {
+      int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+      if (read == -1) {
+        throw new IOException("Patch ends inside of an entry");
+      }
+      out.write(buffer, 0, read);
+      remaining -= read;
+    }
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,405 @@
+package io.deki.dsdn.jar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Packages files to jar archives without the jar command line tool. Entries are compressed in
+ * parallel on all cores and the archive is written with a single file channel.
+ *
+ * <p>Output is reproducible: entries are sorted by name, the manifest comes first as the jar
+ * format expects, and every entry gets the same fixed timestamp. Identical inputs always result in
+ * byte-identical jar files.
+ *
+ * <p>Archives are limited to 65535 entries and 4 GB, the zip64 extensions are not supported.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class JarWriter {
+
+  /**
+   * Name of the jar manifest entry
+   */
+  public static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+
+  /**
+   * Extensions of files that are already compressed and are stored as-is by default
+   */
+  public static final Set<String> DEFAULT_STORED_EXTENSIONS = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList("jar", "zip", "gz", "xz", "bz2", "7z", "png", "jpg", "jpeg",
+          "gif", "webp", "ogg", "mp3", "mp4")));
+
+  /**
+   * Manifest written if the packaged files don't contain one themselves
+   */
+  private static final byte[] DEFAULT_MANIFEST =
+      "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * Fixed MS-DOS time and date of every entry, 1980-02-01 00:00:00. The first month of the MS-DOS
+   * epoch is avoided, some tools treat it as an invalid date.
+   */
+  private static final int DOS_TIME = 0;
+  private static final int DOS_DATE = (2 << 5) | 1;
+
+  /**
+   * General purpose flag marking entry names as UTF-8
+   */
+  private static final int FLAG_UTF8 = 0x0800;
+
+  private static final int METHOD_STORED = 0;
+  private static final int METHOD_DEFLATED = 8;
+
+  /**
+   * Deflate level used for compressed entries, 0 stores every entry uncompressed
+   */
+  private final int level;
+
+  /**
+   * Lower case file extensions of entries that are always stored uncompressed
+   */
+  private final Set<String> storedExtensions;
+
+  /**
+   * Creates a jar writer with the default compression level that stores already compressed files
+   * uncompressed.
+   */
+  public JarWriter() {
+    this(Deflater.DEFAULT_COMPRESSION, DEFAULT_STORED_EXTENSIONS);
+  }
+
+  /**
+   * @param level            Deflate level from 1 to 9, {@link Deflater#DEFAULT_COMPRESSION}, or 0 to
+   *                         store every entry uncompressed
+   * @param storedExtensions File extensions of entries that are always stored uncompressed
+   */
+  public JarWriter(int level, Set<String> storedExtensions) {
+    this.level = level;
+    this.storedExtensions = new HashSet<>();
+    for (String extension : storedExtensions) {
+      this.storedExtensions.add(extension.toLowerCase());
+    }
+  }
+
+  /**
+   * Packages every file in a directory to a jar file. Paths inside of the jar are relative to the
+   * directory, like the -C argument of the jar tool.
+   *
+   * @param dir    Directory of files to package
+   * @param output Jar file to write. If the file already exists it will be overwritten.
+   * @throws IOException If a file couldn't be read or the jar file couldn't be written
+   */
+  public void write(File dir, File output) throws IOException {
+    Path root = dir.toPath();
+    Map<String, Path> files = new TreeMap<>();
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : paths.filter(Files::isRegularFile).collect(Collectors.toList())) {
+        files.put(root.relativize(path).toString().replace(File.separatorChar, '/'), path);
+      }
+    }
+    List<Source> sources = new ArrayList<>();
+    for (Map.Entry<String, Path> file : files.entrySet()) {
+      sources.add(new Source(file.getKey(), null, file.getValue()));
+    }
+    write(sources, output);
+  }
+
+  /**
+   * Packages in-memory contents to a jar file.
+   *
+   * @param entries Contents of the entries, keyed by path inside of the jar
+   * @param output  Jar file to write. If the file already exists it will be overwritten.
+   * @throws IOException If the jar file couldn't be written
+   */
+  public void write(Map<String, byte[]> entries, File output) throws IOException {
+    List<Source> sources = new ArrayList<>();
+    for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+      sources.add(new Source(entry.getKey(), entry.getValue(), null));
+    }
+    write(sources, output);
+  }
+
+  /**
+   * Compresses all entries in parallel and writes them to the jar file in a reproducible order.
+   *
+   * @param sources Files and in-memory contents to package
+   * @param output  Jar file to write
+   * @throws IOException If a file couldn't be read or the jar file couldn't be written
+   */
+  private void write(List<Source> sources, File output) throws IOException {
+    Map<String, Source> files = new TreeMap<>();
+    for (Source source : sources) {
+      files.put(source.name, source);
+    }
+    if (!files.containsKey(MANIFEST_NAME)) {
+      files.put(MANIFEST_NAME, new Source(MANIFEST_NAME, DEFAULT_MANIFEST, null));
+    }
+    //the manifest has to be the first entry (after its directory) for JarInputStream to find it
+    List<String> names = new ArrayList<>();
+    names.add("META-INF/");
+    names.add(MANIFEST_NAME);
+    Set<String> directories = new HashSet<>(names);
+    for (String name : files.keySet()) {
+      for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) {
+        String directory = name.substring(0, i + 1);
+        if (directories.add(directory)) {
+          names.add(directory);
+        }
+      }
+      if (!name.equals(MANIFEST_NAME)) {
+        names.add(name);
+      }
+    }
+    Collections.sort(names.subList(2, names.size()));
+
+    List<Entry> entries;
+    DeflaterPool deflaters = new DeflaterPool(level);
+    try {
+      entries = names.parallelStream().map(name -> name.endsWith("/")
+          ? new Entry(name, METHOD_STORED, new byte[0], 0, 0)
+          : compress(files.get(name), deflaters)).collect(Collectors.toList());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      deflaters.close();
+    }
+    if (entries.size() > 0xFFFF) {
+      throw new IOException("Too many entries for a jar without zip64: " + entries.size());
+    }
+
+    output.getAbsoluteFile().getParentFile().mkdirs();
+    try (FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      long[] offsets = new long[entries.size()];
+      long offset = 0;
+      for (int i = 0; i < entries.size(); i++) {
+        Entry entry = entries.get(i);
+        offsets[i] = offset;
+        ByteBuffer header = buffer(30 + entry.name.length);
+        header.putInt(0x04034b50);
+        putCommonHeader(header, entry);
+        header.putShort((short) 0);
+        header.put(entry.name);
+        offset += writeFully(channel, flip(header));
+        offset += writeFully(channel, ByteBuffer.wrap(entry.data));
+        if (offset > 0xFFFFFFFFL) {
+          throw new IOException("Jar too large without zip64");
+        }
+      }
+      long directoryOffset = offset;
+      for (int i = 0; i < entries.size(); i++) {
+        Entry entry = entries.get(i);
+        ByteBuffer header = buffer(46 + entry.name.length);
+        header.putInt(0x02014b50);
+        header.putShort((short) 20);
+        putCommonHeader(header, entry);
+        //extra field, comment, disk number and internal attributes
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        //external attributes, marks directories for tools that look at them
+        header.putInt(names.get(i).endsWith("/") ? 0x10 : 0);
+        header.putInt((int) offsets[i]);
+        header.put(entry.name);
+        offset += writeFully(channel, flip(header));
+      }
+      ByteBuffer end = buffer(22);
+      end.putInt(0x06054b50);
+      end.putShort((short) 0);
+      end.putShort((short) 0);
+      end.putShort((short) entries.size());
+      end.putShort((short) entries.size());
+      end.putInt((int) (offset - directoryOffset));
+      end.putInt((int) directoryOffset);
+      end.putShort((short) 0);
+      writeFully(channel, flip(end));
+    }
+  }
+
+  /**
+   * Reads and compresses a single entry. Entries that don't shrink when compressed are stored.
+   *
+   * @param source    File or in-memory contents of the entry
+   * @param deflaters Deflaters of the jar being written
+   * @return The compressed entry
+   */
+  private Entry compress(Source source, DeflaterPool deflaters) {
+    byte[] data = source.data;
+    if (data == null) {
+      try {
+        data = Files.readAllBytes(source.path);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    if (level == 0 || data.length == 0 || storedExtensions.contains(extension(source.name))) {
+      return new Entry(source.name, METHOD_STORED, data, data.length, crc.getValue());
+    }
+    byte[] buffer = new byte[Math.max(64, data.length + data.length / 1000 + 64)];
+    int length = 0;
+    Deflater deflater = deflaters.take();
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      while (!deflater.finished()) {
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        length += deflater.deflate(buffer, length, buffer.length - length);
+      }
+    } finally {
+      deflaters.release(deflater);
+    }
+    if (length >= data.length) {
+      return new Entry(source.name, METHOD_STORED, data, data.length, crc.getValue());
+    }
+    return new Entry(source.name, METHOD_DEFLATED, Arrays.copyOf(buffer, length), data.length,
+        crc.getValue());
+  }
+
+  /**
+   * Writes the header fields shared by local file headers and central directory headers, from
+   * "version needed to extract" up to and including the file name length.
+   */
+  private static void putCommonHeader(ByteBuffer header, Entry entry) {
+    header.putShort((short) (entry.method == METHOD_DEFLATED ? 20 : 10));
+    header.putShort((short) FLAG_UTF8);
+    header.putShort((short) entry.method);
+    header.putShort((short) DOS_TIME);
+    header.putShort((short) DOS_DATE);
+    header.putInt((int) entry.crc);
+    header.putInt(entry.data.length);
+    header.putInt(entry.size);
+    header.putShort((short) entry.name.length);
+  }
+
+  private static ByteBuffer buffer(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Flips a buffer through the Buffer type, ByteBuffer doesn't override flip on java 8.
+   */
+  private static ByteBuffer flip(ByteBuffer buffer) {
+    ((Buffer) buffer).flip();
+    return buffer;
+  }
+
+  private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+    int written = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    return written;
+  }
+
+  private static String extension(String name) {
+    int dot = name.lastIndexOf('.');
+    return dot < 0 || dot < name.lastIndexOf('/') ? "" : name.substring(dot + 1).toLowerCase();
+  }
+
+  /**
+   * Deflaters are expensive to create and hold native memory until they are ended, so the threads
+   * compressing the entries of one jar share them, and all of them are ended once the jar is
+   * written.
+   */
+  private static class DeflaterPool {
+
+    private final int level;
+    private final List<Deflater> idle = new ArrayList<>();
+    private boolean closed;
+
+    DeflaterPool(int level) {
+      this.level = level;
+    }
+
+    synchronized Deflater take() {
+      return idle.isEmpty() ? new Deflater(level, true) : idle.remove(idle.size() - 1);
+    }
+
+    /**
+     * Returns a deflater for the next entry, or ends it if compressing was aborted meanwhile
+     */
+    synchronized void release(Deflater deflater) {
+      if (closed) {
+        deflater.end();
+      } else {
+        deflater.reset();
+        idle.add(deflater);
+      }
+    }
+
+    synchronized void close() {
+      closed = true;
+      for (Deflater deflater : idle) {
+        deflater.end();
+      }
+      idle.clear();
+    }
+
+  }
+
+  /**
+   * Contents of an entry before compression, either in memory or in a file.
+   */
+  private static class Source {
+
+    private final String name;
+    private final byte[] data;
+    private final Path path;
+
+    Source(String name, byte[] data, Path path) {
+      this.name = name;
+      this.data = data;
+      this.path = path;
+    }
+
+  }
+
+  /**
+   * An entry ready to be written, after compression.
+   */
+  private static class Entry {
+
+    private final byte[] name;
+    private final int method;
+    private final byte[] data;
+    private final int size;
+    private final long crc;
+
+    Entry(String name, int method, byte[] data, int size, long crc) {
+      this.name = name.getBytes(StandardCharsets.UTF_8);
+      this.method = method;
+      this.data = data;
+      this.size = size;
+      this.crc = crc;
+    }
+
+  }
+
+}
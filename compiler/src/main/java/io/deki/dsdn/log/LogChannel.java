@@ -0,0 +1,345 @@
+package io.deki.dsdn.log;
+
+import io.deki.dsdn.util.ThreadOutput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Log of a single build. Lines are kept in a ring buffer of fixed size and delivered to any number
+ * of subscribers, like a file or a live tail to a developer. Subscriptions are drained by a
+ * bounded pool of delivery threads, one batch at a time, so a stalled sink only ties up one thread
+ * and other subscriptions keep taking turns on the rest. Appending never waits on slow sinks by
+ * default, a subscriber that falls a whole buffer behind skips the lines it missed. Lossless
+ * subscribers instead hold back the build that appends, until they caught up, but only the build
+ * of their own channel. The same applies while all delivery threads are busy: lines wait in the
+ * buffer of their channel, not in an unbounded queue.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class LogChannel implements AutoCloseable {
+
+  private static final AtomicInteger THREADS = new AtomicInteger();
+
+  /**
+   * Maximum number of delivery threads, and of subscriptions waiting for one
+   */
+  private static final int MAX_THREADS =
+      Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+  private static final int MAX_WAITING = 1024;
+
+  /**
+   * Milliseconds until a subscription tries again once all delivery threads and the queue are busy
+   */
+  private static final long RETRY_DELAY = 50;
+
+  /**
+   * Delivers lines to the subscribers of all channels. A subscription is drained by at most one
+   * thread at a time and has at most one delivery queued, idle threads exit after a minute.
+   */
+  private static final ThreadPoolExecutor DELIVERY = createDelivery();
+
+  /**
+   * Resubmits deliveries the delivery threads had no room for
+   */
+  private static final ScheduledExecutorService RETRY =
+      Executors.newSingleThreadScheduledExecutor(runnable -> thread(runnable, "DSDN Log Retry"));
+
+  /**
+   * Lines a subscriber receives before other subscribers get their turn
+   */
+  private static final int BATCH = 256;
+
+  private final String name;
+
+  private final String[] ring;
+
+  /**
+   * Longer lines are cut off
+   */
+  private final int maxLineLength;
+
+  /**
+   * Number of lines appended so far, the next line goes to ring[written % ring.length]
+   */
+  private long written;
+
+  private boolean closed;
+
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+  /**
+   * Creates a channel that keeps the last 10000 lines of up to 8192 characters.
+   *
+   * @param name Name of the build
+   */
+  public LogChannel(String name) {
+    this(name, 10_000, 8192);
+  }
+
+  /**
+   * @param name          Name of the build
+   * @param capacity      Number of lines kept for subscribers that fall behind or join late
+   * @param maxLineLength Longer lines are cut off
+   */
+  public LogChannel(String name, int capacity, int maxLineLength) {
+    this.name = name;
+    this.ring = new String[capacity];
+    this.maxLineLength = maxLineLength;
+  }
+
+  /**
+   * Creates a channel that prints its lines to the console, prefixed with its name. Lines are
+   * dropped if the console can't keep up.
+   *
+   * @param name Name of the build
+   * @return Channel printing to the console
+   */
+  public static LogChannel console(String name) {
+    LogChannel channel = new LogChannel(name);
+    channel.subscribe(LogSinks.console(name), false, false);
+    return channel;
+  }
+
+  /**
+   * Adds a line to the log. Waits while a lossless subscriber is a whole buffer behind, lines
+   * appended after the channel was closed are ignored.
+   *
+   * @param line Line to add
+   */
+  public void append(String line) {
+    synchronized (this) {
+      try {
+        while (!closed && written - slowestLossless() >= ring.length) {
+          wait();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (closed) {
+        return;
+      }
+      ring[(int) (written % ring.length)] =
+          line.length() > maxLineLength ? line.substring(0, maxLineLength) : line;
+      written++;
+    }
+    for (Subscription subscription : subscriptions) {
+      subscription.schedule();
+    }
+  }
+
+  /**
+   * Subscribes a sink to the lines of this channel.
+   *
+   * @param sink     Receives the lines
+   * @param lossless Whether the sink receives every line and holds back appending while it falls
+   *                 behind, or skips lines it fell too far behind on
+   * @param replay   Whether the sink first receives the lines still kept in the buffer, or only
+   *                 lines appended from now on
+   * @return Subscription, can be closed to unsubscribe
+   */
+  public Subscription subscribe(LogSink sink, boolean lossless, boolean replay) {
+    Subscription subscription;
+    synchronized (this) {
+      long cursor = replay ? Math.max(0, written - ring.length) : written;
+      subscription = new Subscription(sink, lossless, cursor);
+      subscriptions.add(subscription);
+    }
+    subscription.schedule();
+    return subscription;
+  }
+
+  /**
+   * @return Lines still kept in the buffer, oldest first
+   */
+  public synchronized List<String> getLines() {
+    List<String> lines = new ArrayList<>();
+    for (long i = Math.max(0, written - ring.length); i < written; i++) {
+      lines.add(ring[(int) (i % ring.length)]);
+    }
+    return lines;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Ends the log. Subscribers receive the lines they haven't received yet, then are closed.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+      notifyAll();
+    }
+    for (Subscription subscription : subscriptions) {
+      subscription.schedule();
+    }
+  }
+
+  private static ThreadPoolExecutor createDelivery() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60,
+        TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_WAITING),
+        runnable -> thread(runnable, "DSDN Log " + THREADS.incrementAndGet()));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  private static Thread thread(Runnable runnable, String name) {
+    Thread thread = new Thread(() -> {
+      //threads started from an embedded build inherit its output, sinks print to the console
+      ThreadOutput.detach();
+      runnable.run();
+    }, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private long slowestLossless() {
+    long slowest = written;
+    for (Subscription subscription : subscriptions) {
+      if (subscription.lossless) {
+        slowest = Math.min(slowest, subscription.cursor);
+      }
+    }
+    return slowest;
+  }
+
+  /**
+   * A sink subscribed to a channel, together with the position of the next line it receives.
+   */
+  public class Subscription implements AutoCloseable {
+
+    private final LogSink sink;
+    private final boolean lossless;
+
+    /**
+     * Number of the next line the sink receives, guarded by the channel
+     */
+    private long cursor;
+
+    /**
+     * Whether or not a delivery is scheduled or running, so a sink never runs on two threads
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile boolean finished;
+
+    private final AtomicBoolean sinkClosed = new AtomicBoolean();
+
+    private Subscription(LogSink sink, boolean lossless, long cursor) {
+      this.sink = sink;
+      this.lossless = lossless;
+      this.cursor = cursor;
+    }
+
+    private void schedule() {
+      if (!finished && scheduled.compareAndSet(false, true)) {
+        submit();
+      }
+    }
+
+    /**
+     * Queues a delivery. If all delivery threads are busy and the queue is full, the lines stay in
+     * the buffer and the delivery is tried again a little later.
+     */
+    private void submit() {
+      try {
+        DELIVERY.execute(this::deliver);
+      } catch (RejectedExecutionException e) {
+        RETRY.schedule(this::submit, RETRY_DELAY, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    /**
+     * Delivers one batch of lines, then makes room for other subscribers.
+     */
+    private void deliver() {
+      List<String> batch = new ArrayList<>();
+      long skipped = 0;
+      boolean end;
+      synchronized (LogChannel.this) {
+        long oldest = Math.max(0, written - ring.length);
+        if (cursor < oldest) {
+          skipped = oldest - cursor;
+          cursor = oldest;
+        }
+        while (cursor < written && batch.size() < BATCH) {
+          batch.add(ring[(int) (cursor++ % ring.length)]);
+        }
+        end = finished || (closed && cursor == written);
+        if (lossless) {
+          LogChannel.this.notifyAll();
+        }
+      }
+      try {
+        if (skipped > 0) {
+          sink.dropped(skipped);
+        }
+        for (String line : batch) {
+          sink.line(line);
+        }
+      } catch (RuntimeException e) {
+        e.printStackTrace();
+        end = true;
+      }
+      if (end) {
+        finish();
+        closeSink();
+        return;
+      }
+      scheduled.set(false);
+      //unsubscribed while this delivery was running
+      if (finished && scheduled.compareAndSet(false, true)) {
+        closeSink();
+        return;
+      }
+      boolean pending;
+      synchronized (LogChannel.this) {
+        pending = cursor < written || closed;
+      }
+      if (pending) {
+        schedule();
+      }
+    }
+
+    private void finish() {
+      finished = true;
+      subscriptions.remove(this);
+      synchronized (LogChannel.this) {
+        LogChannel.this.notifyAll();
+      }
+    }
+
+    private void closeSink() {
+      if (sinkClosed.compareAndSet(false, true)) {
+        sink.closed();
+      }
+    }
+
+    /**
+     * Unsubscribes the sink. It receives no further lines and is closed.
+     */
+    @Override
+    public void close() {
+      finish();
+      //a running delivery closes the sink itself
+      if (scheduled.compareAndSet(false, true)) {
+        closeSink();
+      }
+    }
+
+  }
+
+}
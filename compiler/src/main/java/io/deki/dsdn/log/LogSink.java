@@ -0,0 +1,30 @@
+package io.deki.dsdn.log;
+
+/**
+ * Receives the lines of a log channel, one line at a time and never from two threads at once.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public interface LogSink {
+
+  /**
+   * @param line Next line of the log
+   */
+  void line(String line);
+
+  /**
+   * Called instead of delivering lines the sink fell too far behind on.
+   *
+   * @param count Number of lines that were skipped
+   */
+  default void dropped(long count) {
+  }
+
+  /**
+   * Called once after the last line of a closed channel, or when the sink unsubscribed.
+   */
+  default void closed() {
+  }
+
+}
@@ -0,0 +1,81 @@
+package io.deki.dsdn.log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Common log sinks.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class LogSinks {
+
+  /**
+   * Prints lines to the console, prefixed with an identifier. System.out is looked up for every
+   * line, embedded builds only redirect it for their own threads, see ThreadOutput.
+   *
+   * @param identifier Prepended to every line, like the name of the build
+   * @return Console sink
+   */
+  public static LogSink console(String identifier) {
+    return new LogSink() {
+      @Override
+      public void line(String line) {
+        System.out.printf("[%s] %s%n", identifier, line);
+      }
+
+      @Override
+      public void dropped(long count) {
+        System.out.printf("[%s] ... %d lines dropped%n", identifier, count);
+      }
+    };
+  }
+
+  /**
+   * Writes lines to a file, which is closed together with the channel.
+   *
+   * @param file File to write to, replaced if it exists
+   * @return File sink
+   * @throws IOException If the file can't be created
+   */
+  public static LogSink file(File file) throws IOException {
+    Writer writer = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+    return new LogSink() {
+      @Override
+      public void line(String line) {
+        write(line);
+      }
+
+      @Override
+      public void dropped(long count) {
+        write("... " + count + " lines dropped");
+      }
+
+      @Override
+      public void closed() {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+
+      private void write(String line) {
+        try {
+          writer.write(line);
+          writer.write(System.lineSeparator());
+        } catch (IOException e) {
+          e.printStackTrace();
+        }
+      }
+    };
+  }
+
+}
@@ -0,0 +1,51 @@
+package io.deki.dsdn.maven;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits how many build threads run at once across all maven builds. A build holds one permit per
+ * reactor thread for as long as it runs, builds that would exceed the budget wait in arrival order.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class CpuBudget {
+
+  private final int size;
+
+  private final Semaphore permits;
+
+  /**
+   * @param size Number of build threads that may run at once
+   */
+  public CpuBudget(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Budget must be at least 1, got " + size);
+    }
+    this.size = size;
+    this.permits = new Semaphore(size, true);
+  }
+
+  /**
+   * Waits until threads are available. Requests larger than the budget are granted the whole
+   * budget, so every request eventually runs.
+   *
+   * @param threads Number of threads the build wants
+   * @return Number of threads granted, to be given back with {@link #release(int)}
+   * @throws InterruptedException If the thread was interrupted while waiting
+   */
+  public int acquire(int threads) throws InterruptedException {
+    int granted = Math.max(1, Math.min(threads, size));
+    permits.acquire(granted);
+    return granted;
+  }
+
+  public void release(int threads) {
+    permits.release(threads);
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+}
@@ -0,0 +1,164 @@
+package io.deki.dsdn.maven;
+
+import io.deki.dsdn.util.ResourceUsage;
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a maven build, with the time spent per lifecycle phase, per mojo and per module, and
+ * the artifacts the build produced.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class MavenBuildResult {
+
+  private final boolean success;
+
+  /**
+   * Wall time of the whole build in milliseconds
+   */
+  private final long wallTime;
+
+  private final List<MojoExecution> mojos;
+
+  /**
+   * Wall time per module in milliseconds, keyed by groupId:artifactId in build order
+   */
+  private final Map<String, Long> modules;
+
+  private final List<File> artifacts;
+
+  /**
+   * Resources the build consumed, null for embedded builds
+   */
+  private final ResourceUsage usage;
+
+  public MavenBuildResult(boolean success, long wallTime, List<MojoExecution> mojos,
+      Map<String, Long> modules, List<File> artifacts, ResourceUsage usage) {
+    this.success = success;
+    this.wallTime = wallTime;
+    this.mojos = Collections.unmodifiableList(mojos);
+    this.modules = Collections.unmodifiableMap(modules);
+    this.artifacts = Collections.unmodifiableList(artifacts);
+    this.usage = usage;
+  }
+
+  public boolean isSuccess() {
+    return success;
+  }
+
+  public long getWallTime() {
+    return wallTime;
+  }
+
+  public List<MojoExecution> getMojos() {
+    return mojos;
+  }
+
+  public Map<String, Long> getModules() {
+    return modules;
+  }
+
+  public List<File> getArtifacts() {
+    return artifacts;
+  }
+
+  /**
+   * @return CPU time, peak memory and disk bytes written of the maven process and every process it
+   * started, null for embedded builds, which share this JVM
+   */
+  public ResourceUsage getUsage() {
+    return usage;
+  }
+
+  /**
+   * Sums up the mojo durations per lifecycle phase, in the order the phases first ran.
+   *
+   * @return Wall time per phase in milliseconds
+   */
+  public Map<String, Long> getPhases() {
+    Map<String, Long> phases = new LinkedHashMap<>();
+    for (MojoExecution mojo : mojos) {
+      phases.merge(mojo.getPhase(), mojo.getDuration(), Long::sum);
+    }
+    return phases;
+  }
+
+  @Override
+  public String toString() {
+    return "MavenBuildResult(success=" + success + ", wallTime=" + wallTime + "ms, phases="
+        + getPhases() + ", modules=" + modules + ", artifacts=" + artifacts + ", usage=" + usage
+        + ")";
+  }
+
+  /**
+   * A single mojo execution, like compiler:compile (default-compile) of one module.
+   */
+  public static class MojoExecution {
+
+    private final String module;
+    private final String plugin;
+    private final String version;
+    private final String goal;
+    private final String executionId;
+    private final String phase;
+    private final long duration;
+
+    public MojoExecution(String module, String plugin, String version, String goal,
+        String executionId, String phase, long duration) {
+      this.module = module;
+      this.plugin = plugin;
+      this.version = version;
+      this.goal = goal;
+      this.executionId = executionId;
+      this.phase = phase;
+      this.duration = duration;
+    }
+
+    public String getModule() {
+      return module;
+    }
+
+    public String getPlugin() {
+      return plugin;
+    }
+
+    public String getVersion() {
+      return version;
+    }
+
+    public String getGoal() {
+      return goal;
+    }
+
+    public String getExecutionId() {
+      return executionId;
+    }
+
+    /**
+     * @return Lifecycle phase the mojo is bound to by default, or "unknown" for goals that have no
+     * well known binding
+     */
+    public String getPhase() {
+      return phase;
+    }
+
+    /**
+     * @return Wall time of the execution in milliseconds
+     */
+    public long getDuration() {
+      return duration;
+    }
+
+    @Override
+    public String toString() {
+      return plugin + ":" + goal + " (" + executionId + ") @ " + module + " " + duration + "ms";
+    }
+
+  }
+
+}
@@ -0,0 +1,269 @@
+package io.deki.dsdn.maven;
+
+import io.deki.dsdn.util.ThreadOutput;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs maven inside of the current JVM. The maven distribution is loaded once, through its own
+ * classworlds launcher and m2.conf, into class loaders that are isolated from ours.
+ *
+ * <p>Builds share one long-lived MavenCli and plexus container. Every build runs the steps of
+ * MavenCli.doMain, except that the container is created by the first build and kept afterwards
+ * instead of being disposed. Plugin realms, plugin descriptors and extension realms stay cached in
+ * the container, and later builds run on classes the JIT has already warmed up. Core extensions
+ * are part of the container, so projects with a .mvn/extensions.xml get a container of their own
+ * that is disposed after their build.
+ *
+ * <p>Maven reads its configuration from system properties, which are shared by the whole JVM, so
+ * embedded builds run one at a time, and every system property a build sets or changes, like the
+ * -D options of its command line, is restored afterwards. Their output is redirected per thread,
+ * see {@link ThreadOutput}, so output of other threads doesn't end up in the build log.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class MavenEmbedder {
+
+  /**
+   * Steps of MavenCli.doMain before and after its container is created
+   */
+  private static final String[] PREPARE = {"initialize", "cli", "properties", "logging",
+      "informativeCommands", "version"};
+  private static final String[] RUN = {"commands", "configure", "toolchains", "populateRequest",
+      "encryption", "execute"};
+
+  /**
+   * Root of the maven distribution
+   */
+  private final File mavenHome;
+
+  /**
+   * Class world and main realm of the distribution, MavenCli and its CliRequest, loaded on the
+   * first build
+   */
+  private Object world;
+  private ClassLoader realm;
+  private Class<?> cliClass;
+  private Class<?> requestClass;
+
+  /**
+   * MavenCli instance that is shared by the builds, and its plexus container once the first build
+   * created it
+   */
+  private Object cli;
+  private Object container;
+
+  public MavenEmbedder(File mavenHome) {
+    this.mavenHome = mavenHome;
+  }
+
+  /**
+   * Runs maven with command line arguments.
+   *
+   * @param dir    Directory of the project to build
+   * @param args   Maven command line arguments, like "package" or "-o"
+   * @param stdout Stream for the standard output of maven
+   * @param stderr Stream for the error output of maven
+   * @return Exit code of maven, 0 if the build succeeded
+   */
+  public synchronized int execute(File dir, String[] args, PrintStream stdout,
+      PrintStream stderr) {
+    Properties previousProperties = new Properties();
+    previousProperties.putAll(System.getProperties());
+    ClassLoader previousLoader = Thread.currentThread().getContextClassLoader();
+    ThreadOutput.Route route = ThreadOutput.redirect(stdout, stderr);
+    //maven replaces System.out and System.err when it logs to a file
+    PrintStream previousOut = System.out;
+    PrintStream previousErr = System.err;
+    try {
+      //m2.conf and MavenCli refer to the distribution through the maven.home property
+      System.setProperty("maven.home", mavenHome.getAbsolutePath());
+      System.setProperty("maven.multiModuleProjectDirectory", dir.getAbsolutePath());
+      initialize();
+      Thread.currentThread().setContextClassLoader(realm);
+      if (new File(dir, ".mvn/extensions.xml").isFile()
+          || System.getProperty("maven.ext.class.path") != null) {
+        Object isolated = cliClass.getConstructor(world.getClass()).newInstance(world);
+        //null streams keep maven from replacing System.out and System.err for the whole JVM
+        return (Integer) cliClass.getMethod("doMain", String[].class, String.class,
+            PrintStream.class, PrintStream.class)
+            .invoke(isolated, args, dir.getAbsolutePath(), null, null);
+      }
+      return run(dir, args);
+    } catch (InvocationTargetException e) {
+      e.getCause().printStackTrace();
+    } catch (IOException | ReflectiveOperationException | RuntimeException e) {
+      e.printStackTrace();
+    } finally {
+      System.setOut(previousOut);
+      System.setErr(previousErr);
+      route.close();
+      Thread.currentThread().setContextClassLoader(previousLoader);
+      restore(previousProperties);
+    }
+    return -1;
+  }
+
+  /**
+   * Disposes the shared container. Later builds create a new one.
+   */
+  public synchronized void close() {
+    if (container == null) {
+      return;
+    }
+    try {
+      call(container, "dispose");
+    } catch (ReflectiveOperationException e) {
+      e.printStackTrace();
+    }
+    container = null;
+  }
+
+  /**
+   * Runs a build on the shared container, creating the container on the first build.
+   */
+  private int run(File dir, String[] args) throws ReflectiveOperationException {
+    Constructor<?> constructor =
+        requestClass.getDeclaredConstructor(String[].class, world.getClass());
+    constructor.setAccessible(true);
+    Object request = constructor.newInstance(args, world);
+    field(requestClass, "workingDirectory").set(request, dir.getAbsolutePath());
+    try {
+      for (String step : PREPARE) {
+        step(step, request);
+      }
+      if (container == null) {
+        container = step("container", request);
+      } else {
+        reuse(request);
+      }
+      Object exitCode = null;
+      for (String step : RUN) {
+        exitCode = step(step, request);
+      }
+      return (Integer) exitCode;
+    } catch (InvocationTargetException e) {
+      //informative options like -v end the build early with an exit code
+      Throwable cause = e.getCause();
+      if (cause.getClass().getName().equals("org.apache.maven.cli.MavenCli$ExitException")) {
+        return field(cause.getClass(), "exitCode").getInt(cause);
+      }
+      cause.printStackTrace();
+      return 1;
+    }
+  }
+
+  /**
+   * Does what MavenCli.container does for every build apart from creating the container: applies
+   * the log level of the build and initializes the event spies, which are closed after every
+   * build.
+   */
+  @SuppressWarnings("unchecked")
+  private void reuse(Object request) throws ReflectiveOperationException {
+    Thread.currentThread().setContextClassLoader(
+        (ClassLoader) call(container, "getContainerRealm"));
+    Object executionRequest = field(requestClass, "request").get(request);
+    call(call(container, "getLoggerManager"), "setThresholds",
+        call(executionRequest, "getLoggingLevel"));
+    Object context = realm.loadClass("org.apache.maven.cli.event.DefaultEventSpyContext")
+        .getConstructor().newInstance();
+    Map<String, Object> data = (Map<String, Object>) call(context, "getData");
+    data.put("plexus", container);
+    data.put("workingDirectory", field(requestClass, "workingDirectory").get(request));
+    data.put("systemProperties", field(requestClass, "systemProperties").get(request));
+    data.put("userProperties", field(requestClass, "userProperties").get(request));
+    Method buildProperties = realm.loadClass("org.apache.maven.cli.CLIReportingUtils")
+        .getDeclaredMethod("getBuildProperties");
+    buildProperties.setAccessible(true);
+    data.put("versionProperties", buildProperties.invoke(null));
+    call(field(cliClass, "eventSpyDispatcher").get(cli), "init", context);
+  }
+
+  /**
+   * Loads the maven distribution the same way bin/mvn does, if it hasn't been loaded yet.
+   */
+  private void initialize() throws IOException, ReflectiveOperationException {
+    if (cli != null) {
+      return;
+    }
+    File[] boot = new File(mavenHome, "boot").listFiles(
+        (parent, name) -> name.startsWith("plexus-classworlds") && name.endsWith(".jar"));
+    if (boot == null || boot.length == 0) {
+      throw new IOException("No plexus-classworlds jar in " + mavenHome);
+    }
+    //the parent of the system class loader only sees the JDK, none of our dependencies
+    ClassLoader loader = new URLClassLoader(new URL[]{boot[0].toURI().toURL()},
+        ClassLoader.getSystemClassLoader().getParent());
+    Class<?> launcherClass =
+        loader.loadClass("org.codehaus.plexus.classworlds.launcher.Launcher");
+    Object launcher = launcherClass.getConstructor().newInstance();
+    launcherClass.getMethod("setSystemClassLoader", ClassLoader.class).invoke(launcher, loader);
+    try (InputStream config = new FileInputStream(new File(mavenHome, "bin/m2.conf"))) {
+      launcherClass.getMethod("configure", InputStream.class).invoke(launcher, config);
+    }
+    world = launcherClass.getMethod("getWorld").invoke(launcher);
+    realm = (ClassLoader) launcherClass.getMethod("getMainRealm").invoke(launcher);
+    cliClass = realm.loadClass("org.apache.maven.cli.MavenCli");
+    requestClass = realm.loadClass("org.apache.maven.cli.CliRequest");
+    cli = cliClass.getConstructor(world.getClass()).newInstance(world);
+  }
+
+  /**
+   * Runs one step of MavenCli.doMain on the shared MavenCli.
+   */
+  private Object step(String name, Object request) throws ReflectiveOperationException {
+    Method method = cliClass.getDeclaredMethod(name, requestClass);
+    method.setAccessible(true);
+    return method.invoke(cli, request);
+  }
+
+  /**
+   * Puts the system properties back the way they were before a build.
+   */
+  private static void restore(Properties previous) {
+    Properties current = System.getProperties();
+    for (Object key : new ArrayList<>(current.keySet())) {
+      if (!previous.containsKey(key)) {
+        current.remove(key);
+      }
+    }
+    for (Map.Entry<Object, Object> entry : previous.entrySet()) {
+      if (!entry.getValue().equals(current.get(entry.getKey()))) {
+        current.put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private static Field field(Class<?> type, String name) throws NoSuchFieldException {
+    Field field = type.getDeclaredField(name);
+    field.setAccessible(true);
+    return field;
+  }
+
+  /**
+   * Calls a public method of a maven class by its name and number of parameters.
+   */
+  private static Object call(Object target, String name, Object... args)
+      throws ReflectiveOperationException {
+    for (Method method : target.getClass().getMethods()) {
+      if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+        return method.invoke(target, args);
+      }
+    }
+    throw new NoSuchMethodException(target.getClass().getName() + "." + name);
+  }
+
+}
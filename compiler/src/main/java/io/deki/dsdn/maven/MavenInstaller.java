@@ -0,0 +1,263 @@
+package io.deki.dsdn.maven;
+
+import io.deki.dsdn.log.LogChannel;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Provisions a maven distribution. A distribution that is already in place is used as it is,
+ * otherwise the zip is downloaded and extracted in a single pass while its SHA-512 checksum is
+ * computed. The checksum is compared with the .sha512 file published next to the zip, only a
+ * verified distribution is moved into place.
+ *
+ * <p>Installing is asynchronous and happens once, no matter how many threads ask for it.
+ * Processes that share the maven home coordinate through a lock file next to it.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class MavenInstaller {
+
+  /**
+   * Root of the distribution, the top level folder of the zip is stripped when extracting
+   */
+  private final File home;
+
+  /**
+   * URL of the distribution zip, can point to a local mirror. Null if the distribution has to be
+   * installed already
+   */
+  private final String url;
+
+  private final AtomicReference<CompletableFuture<File>> installation = new AtomicReference<>();
+
+  public MavenInstaller(File home, String url) {
+    this.home = home;
+    this.url = url;
+  }
+
+  /**
+   * Starts installing the distribution in the background, unless it's installed or being
+   * installed already. A failed installation is retried by the next call.
+   *
+   * @return Future of the maven home, completes exceptionally if the installation failed
+   */
+  public CompletableFuture<File> install() {
+    return install(null);
+  }
+
+  /**
+   * Starts installing the distribution in the background, unless it's installed or being
+   * installed already. A failed installation is retried by the next call, and so is an
+   * installation whose files have gone missing since.
+   *
+   * @param log Receives the progress of the download, if this call starts it. Can be null
+   * @return Future of the maven home, completes exceptionally if the installation failed
+   */
+  public CompletableFuture<File> install(LogChannel log) {
+    while (true) {
+      CompletableFuture<File> current = installation.get();
+      if (current != null && !current.isCompletedExceptionally()
+          && (!current.isDone() || isInstalled(home))) {
+        return current;
+      }
+      CompletableFuture<File> next = new CompletableFuture<>();
+      if (installation.compareAndSet(current, next)) {
+        if (isInstalled(home)) {
+          next.complete(home);
+        } else {
+          Thread thread = new Thread(() -> {
+            try {
+              next.complete(installLocked(log));
+            } catch (IOException | RuntimeException e) {
+              next.completeExceptionally(e);
+            }
+          }, "dsdn-maven-install");
+          thread.setDaemon(true);
+          thread.start();
+        }
+        return next;
+      }
+    }
+  }
+
+  public File getHome() {
+    return home;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Checks whether or not a directory contains a maven distribution.
+   *
+   * @param home Directory to check
+   * @return Whether or not maven can be launched from the directory
+   */
+  public static boolean isInstalled(File home) {
+    File[] boot = new File(home, "boot").listFiles(
+        (parent, name) -> name.startsWith("plexus-classworlds") && name.endsWith(".jar"));
+    return boot != null && boot.length > 0 && new File(home, "bin/m2.conf").isFile();
+  }
+
+  /**
+   * Installs the distribution while holding the lock file, unless another process installed it
+   * in the meantime.
+   */
+  private File installLocked(LogChannel log) throws IOException {
+    if (url == null) {
+      throw new IOException("No maven distribution in " + home);
+    }
+    File parent = home.getAbsoluteFile().getParentFile();
+    parent.mkdirs();
+    File lockFile = new File(parent, home.getName() + ".lock");
+    //file locks are held by the whole JVM, installers of the same home must not overlap
+    synchronized (MavenInstaller.class) {
+      try (FileChannel channel = new RandomAccessFile(lockFile, "rw").getChannel()) {
+        FileLock lock = channel.lock();
+        try {
+          if (!isInstalled(home)) {
+            String[] contents = home.list();
+            //not ours to delete, it may be a directory passed in as maven home
+            if (contents != null && contents.length > 0) {
+              throw new IOException("Incomplete maven distribution in " + home
+                  + ", remove it to reinstall");
+            }
+            download(parent, log);
+          }
+          return home;
+        } finally {
+          lock.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Downloads, extracts and verifies the distribution into a staging folder and moves it into
+   * place.
+   *
+   * @param parent Parent of the maven home, the staging folder is created there
+   * @param log    Receives the progress, can be null
+   */
+  private void download(File parent, LogChannel log) throws IOException {
+    String expected = readChecksum();
+    File staging = new File(parent, home.getName() + "-" + UUID.randomUUID() + ".tmp");
+    report(log, "Downloading maven binaries from " + url + "...");
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-512");
+      try (InputStream in = new DigestInputStream(new URL(url).openStream(), digest)) {
+        extract(in, staging);
+        //consume what's left after the central directory, it's part of the checksum
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) != -1) {
+          //discard
+        }
+      }
+      String actual = toHex(digest.digest());
+      if (!actual.equalsIgnoreCase(expected)) {
+        throw new IOException("Checksum mismatch for " + url + ", expected " + expected
+            + " but got " + actual);
+      }
+      Files.move(staging.toPath(), home.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      report(log, "Installed maven binaries to " + home);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    } finally {
+      FileUtils.deleteDirectory(staging);
+    }
+  }
+
+  /**
+   * Reads the published checksum of the distribution.
+   *
+   * @return Hex encoded SHA-512 checksum
+   */
+  private String readChecksum() throws IOException {
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new URL(url + ".sha512").openStream(), StandardCharsets.UTF_8))) {
+      String line = reader.readLine();
+      if (line == null || line.trim().isEmpty()) {
+        throw new IOException("Empty checksum file for " + url);
+      }
+      //either only the checksum, or the checksum followed by the file name
+      return line.trim().split("\\s+")[0];
+    }
+  }
+
+  /**
+   * Extracts a zip as it streams in, without the top level folder of its entries.
+   *
+   * @param in     Stream of the zip
+   * @param target Folder to extract to
+   */
+  private static void extract(InputStream in, File target) throws IOException {
+    ZipInputStream zip = new ZipInputStream(in);
+    String root = target.getCanonicalPath() + File.separator;
+    byte[] buffer = new byte[64 * 1024];
+    ZipEntry entry;
+    while ((entry = zip.getNextEntry()) != null) {
+      String name = entry.getName();
+      int slash = name.indexOf('/');
+      if (slash < 0 || slash == name.length() - 1) {
+        continue;
+      }
+      File file = new File(target, name.substring(slash + 1));
+      if (!file.getCanonicalPath().startsWith(root)) {
+        throw new IOException("Zip entry " + name + " points outside of " + target);
+      }
+      if (entry.isDirectory()) {
+        file.mkdirs();
+        continue;
+      }
+      file.getParentFile().mkdirs();
+      try (OutputStream out = new FileOutputStream(file)) {
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+        }
+      }
+      //zip entries carry no unix permissions, the launch scripts have to be executable
+      if (name.contains("/bin/") && !name.endsWith(".cmd") && !name.endsWith(".conf")) {
+        file.setExecutable(true);
+      }
+    }
+  }
+
+  private static void report(LogChannel log, String line) {
+    if (log != null) {
+      log.append(line);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder builder = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      builder.append(String.format("%02x", b));
+    }
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,191 @@
+package io.deki.dsdn.maven;
+
+import io.deki.dsdn.util.ResourceUsage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reconstructs the timeline of a maven build from its console output. Maven announces every module
+ * and every mojo execution with a header line, a mojo is timed from its header to the next
+ * header of the same module, or the next header at all when modules are built one after another.
+ * A module lasts from its first header to the end of its last mojo, in parallel builds the last
+ * mojo of a module only ends with the build. Builds run with -q don't print headers and produce no
+ * timings.
+ *
+ * <p>Console output doesn't name the lifecycle phase of a mojo, phases are derived from the default
+ * bindings of well known goals.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class MavenOutputParser implements Consumer<String> {
+
+  private static final Pattern ANSI = Pattern.compile("\u001B\\[[;\\d]*m");
+
+  /**
+   * [INFO] --- compiler:3.11.0:compile (default-compile) @ project ---
+   */
+  private static final Pattern MOJO =
+      Pattern.compile("--- (\\S+):(\\S+):(\\S+) \\((\\S+)\\) @ (\\S+) ---");
+
+  /**
+   * [INFO] ---------------------< io.deki.dsdn:compiler >---------------------
+   */
+  private static final Pattern MODULE = Pattern.compile("^\\[INFO] -+< (\\S+) >-+$");
+
+  /**
+   * [INFO] Building jar: /path/to/project/target/project-1.0.jar
+   */
+  private static final Pattern ARTIFACT = Pattern.compile(
+      "^\\[INFO] (?:Building (?:jar|war|ear|zip|tar\\.gz|tar): |Installing \\S+ to )(.+)$");
+
+  /**
+   * [INFO] BUILD SUCCESS, ends the timeline before the summary is printed
+   */
+  private static final Pattern END = Pattern.compile("^\\[INFO] BUILD (?:SUCCESS|FAILURE)$");
+
+  /**
+   * Lifecycle phases of goals that are bound by default
+   */
+  private static final Map<String, String> PHASES = new HashMap<>();
+
+  static {
+    PHASES.put("clean", "clean");
+    PHASES.put("resources", "process-resources");
+    PHASES.put("compile", "compile");
+    PHASES.put("testResources", "process-test-resources");
+    PHASES.put("testCompile", "test-compile");
+    PHASES.put("test", "test");
+    PHASES.put("jar", "package");
+    PHASES.put("war", "package");
+    PHASES.put("shade", "package");
+    PHASES.put("single", "package");
+    PHASES.put("integration-test", "integration-test");
+    PHASES.put("verify", "verify");
+    PHASES.put("install", "install");
+    PHASES.put("deploy", "deploy");
+  }
+
+  private final long start = System.nanoTime();
+  private final List<MavenBuildResult.MojoExecution> mojos = new ArrayList<>();
+  private final List<File> artifacts = new ArrayList<>();
+
+  /**
+   * groupId:artifactId of the modules by artifactId, mojo headers only name the artifactId
+   */
+  private final Map<String, String> names = new HashMap<>();
+
+  /**
+   * Start and end of every module, in the order the modules started
+   */
+  private final Map<String, long[]> spans = new LinkedHashMap<>();
+
+  /**
+   * Running mojo execution per module and its start
+   */
+  private final Map<String, Matcher> running = new LinkedHashMap<>();
+  private final Map<String, Long> runningSince = new HashMap<>();
+
+  /**
+   * Parallel reactors interleave the output of their modules, a header then only ends the mojo of
+   * its own module
+   */
+  private boolean parallel;
+  private boolean ended;
+
+  @Override
+  public synchronized void accept(String line) {
+    if (ended) {
+      return;
+    }
+    long now = System.nanoTime();
+    String plain = ANSI.matcher(line).replaceAll("").trim();
+    Matcher matcher;
+    if ((matcher = MODULE.matcher(plain)).find()) {
+      String name = matcher.group(1);
+      names.put(name.substring(name.lastIndexOf(':') + 1), name);
+      if (!parallel) {
+        finishAll(now);
+      }
+      spans.putIfAbsent(name, new long[]{now, now});
+    } else if ((matcher = MOJO.matcher(plain)).find()) {
+      String module = matcher.group(5);
+      if (parallel) {
+        finish(module, now);
+      } else {
+        finishAll(now);
+      }
+      spans.computeIfAbsent(names.getOrDefault(module, module), name -> new long[]{now, now});
+      running.put(module, matcher);
+      runningSince.put(module, now);
+    } else if ((matcher = ARTIFACT.matcher(plain)).find()) {
+      artifacts.add(new File(matcher.group(1).trim()));
+    } else if (END.matcher(plain).find()) {
+      finishAll(now);
+      ended = true;
+    } else if (plain.contains("MultiThreadedBuilder")) {
+      parallel = true;
+    }
+  }
+
+  /**
+   * Finishes the timeline and creates the result of the build.
+   *
+   * @param success Whether or not the build succeeded
+   * @return Result of the build
+   */
+  public MavenBuildResult finish(boolean success) {
+    return finish(success, null);
+  }
+
+  /**
+   * Finishes the timeline and creates the result of the build.
+   *
+   * @param success Whether or not the build succeeded
+   * @param usage   Resources the build consumed, null if unknown
+   * @return Result of the build
+   */
+  public synchronized MavenBuildResult finish(boolean success, ResourceUsage usage) {
+    long now = System.nanoTime();
+    if (!ended) {
+      finishAll(now);
+      ended = true;
+    }
+    Map<String, Long> modules = new LinkedHashMap<>();
+    spans.forEach((name, span) -> modules.put(name, millis(span[1] - span[0])));
+    return new MavenBuildResult(success, millis(now - start), new ArrayList<>(mojos), modules,
+        new ArrayList<>(artifacts), usage);
+  }
+
+  private void finishAll(long now) {
+    for (String module : new ArrayList<>(running.keySet())) {
+      finish(module, now);
+    }
+  }
+
+  private void finish(String module, long now) {
+    Matcher mojo = running.remove(module);
+    if (mojo == null) {
+      return;
+    }
+    String name = names.getOrDefault(module, module);
+    String goal = mojo.group(3);
+    mojos.add(new MavenBuildResult.MojoExecution(name, mojo.group(1), mojo.group(2), goal,
+        mojo.group(4), PHASES.getOrDefault(goal, "unknown"),
+        millis(now - runningSince.remove(module))));
+    long[] span = spans.get(name);
+    span[1] = Math.max(span[1], now);
+  }
+
+  private static long millis(long nanos) {
+    return nanos / 1_000_000;
+  }
+
+}
@@ -0,0 +1,118 @@
+package io.deki.dsdn.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Local maven repository shared by every build, so dependencies are only downloaded once. Builds
+ * running at the same time, in this JVM or in forked JVMs, coordinate through file locks per
+ * artifact, which maven's resolver takes when the named lock options are set. Builds resolving
+ * different artifacts never wait on each other.
+ *
+ * <p>The repository can be switched to offline mode, where builds only use artifacts that are
+ * already in the repository, and can route all downloads through a mirror, like a local stand-in
+ * repository for testing.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class MavenRepository {
+
+  /**
+   * Resolver options for cross-process locks per artifact, supported since maven 3.9
+   */
+  private static final List<String> LOCK_OPTIONS = Arrays.asList(
+      "-Daether.syncContext.named.factory=file-lock",
+      "-Daether.syncContext.named.nameMapper=file-gav");
+
+  /**
+   * Directory of the shared repository
+   */
+  private volatile File dir;
+
+  /**
+   * Whether or not builds may download missing artifacts
+   */
+  private volatile boolean offline;
+
+  /**
+   * Settings file routing every download through the mirror, null to download from the
+   * repositories declared by the projects
+   */
+  private volatile File settings;
+
+  public MavenRepository(File dir) {
+    this.dir = dir;
+  }
+
+  public File getDir() {
+    return dir;
+  }
+
+  public void setDir(File dir) {
+    this.dir = dir;
+  }
+
+  public boolean isOffline() {
+    return offline;
+  }
+
+  public void setOffline(boolean offline) {
+    this.offline = offline;
+  }
+
+  /**
+   * Routes every download through a mirror. Writes a settings file next to the repository that
+   * declares the mirror for all repositories.
+   *
+   * @param url URL of the mirror, or null to stop using a mirror
+   * @throws IOException If the settings file couldn't be written
+   */
+  public void setMirror(String url) throws IOException {
+    if (url == null) {
+      settings = null;
+      return;
+    }
+    File file = new File(dir.getAbsolutePath() + "-settings.xml");
+    file.getParentFile().mkdirs();
+    String xml = "<settings>\n"
+        + "  <mirrors>\n"
+        + "    <mirror>\n"
+        + "      <id>dsdn-mirror</id>\n"
+        + "      <mirrorOf>*</mirrorOf>\n"
+        + "      <url>" + escape(url) + "</url>\n"
+        + "    </mirror>\n"
+        + "  </mirrors>\n"
+        + "</settings>\n";
+    Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    settings = file;
+  }
+
+  /**
+   * @return Maven command line arguments that make a build use this repository
+   */
+  public List<String> getArguments() {
+    List<String> arguments = new ArrayList<>();
+    arguments.add("-Dmaven.repo.local=" + dir.getAbsolutePath());
+    arguments.addAll(LOCK_OPTIONS);
+    if (offline) {
+      arguments.add("-o");
+    }
+    File settings = this.settings;
+    if (settings != null) {
+      arguments.add("-s");
+      arguments.add(settings.getAbsolutePath());
+    }
+    return arguments;
+  }
+
+  private static String escape(String value) {
+    return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
+
+}
@@ -0,0 +1,133 @@
+package io.deki.dsdn.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Holds back new builds while the host is overloaded, so many builds triggered at once don't make
+ * the host thrash. A build is admitted once the load average per core and the available memory
+ * are within their limits. The load average lags behind, builds admitted during the last ten
+ * seconds count as one unit of load each until it caught up.
+ *
+ * <p>Load and memory are read from /proc, on other systems than Linux every build is admitted.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class AdmissionController {
+
+  /**
+   * Milliseconds between two checks while a build is held back
+   */
+  private static final long POLL_INTERVAL = 500;
+
+  /**
+   * Milliseconds an admitted build counts towards the load
+   */
+  private static final long RECENT = 10_000;
+
+  private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Highest 1 minute load average per core at which builds are admitted, 0 to ignore the load
+   */
+  private static volatile double maxLoadPerCore = 2;
+
+  /**
+   * Lowest share of available memory at which builds are admitted, 0 to ignore memory
+   */
+  private static volatile double minAvailableMemory = 0.1;
+
+  /**
+   * Times at which the builds of the last ten seconds were admitted
+   */
+  private static final Deque<Long> ADMISSIONS = new ArrayDeque<>();
+
+  /**
+   * Waits until the host has room for another build. Builds are admitted one at a time, in no
+   * particular order.
+   *
+   * @throws InterruptedException If the thread was interrupted while waiting
+   */
+  public static void await() throws InterruptedException {
+    synchronized (ADMISSIONS) {
+      while (isOverloaded()) {
+        ADMISSIONS.wait(POLL_INTERVAL);
+      }
+      ADMISSIONS.addLast(System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * @return Whether or not new builds are held back right now
+   */
+  public static boolean isOverloaded() {
+    synchronized (ADMISSIONS) {
+      long now = System.currentTimeMillis();
+      while (!ADMISSIONS.isEmpty() && ADMISSIONS.peekFirst() < now - RECENT) {
+        ADMISSIONS.removeFirst();
+      }
+      double load = readLoad();
+      if (maxLoadPerCore > 0 && load >= 0
+          && (load + ADMISSIONS.size()) / CORES > maxLoadPerCore) {
+        return true;
+      }
+      double memory = readAvailableMemory();
+      return minAvailableMemory > 0 && memory >= 0 && memory < minAvailableMemory;
+    }
+  }
+
+  /**
+   * @param maxLoadPerCore Highest 1 minute load average per core at which builds are admitted, 0
+   *                       to ignore the load. Defaults to 2
+   */
+  public static void setMaxLoadPerCore(double maxLoadPerCore) {
+    AdmissionController.maxLoadPerCore = maxLoadPerCore;
+  }
+
+  /**
+   * @param minAvailableMemory Lowest share of available memory, between 0 and 1, at which builds
+   *                           are admitted, 0 to ignore memory. Defaults to 0.1
+   */
+  public static void setMinAvailableMemory(double minAvailableMemory) {
+    AdmissionController.minAvailableMemory = minAvailableMemory;
+  }
+
+  /**
+   * @return 1 minute load average, or -1 if it can't be read
+   */
+  private static double readLoad() {
+    try {
+      String loadavg = new String(Files.readAllBytes(Paths.get("/proc/loadavg")),
+          StandardCharsets.UTF_8);
+      return Double.parseDouble(loadavg.split(" ")[0]);
+    } catch (IOException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return Share of memory that is available without swapping, or -1 if it can't be read
+   */
+  private static double readAvailableMemory() {
+    try {
+      long total = -1;
+      long available = -1;
+      for (String line : Files.readAllLines(Paths.get("/proc/meminfo"))) {
+        if (line.startsWith("MemTotal:")) {
+          total = Long.parseLong(line.replaceAll("\\D", ""));
+        } else if (line.startsWith("MemAvailable:")) {
+          available = Long.parseLong(line.replaceAll("\\D", ""));
+        }
+      }
+      return total > 0 && available >= 0 ? (double) available / total : -1;
+    } catch (IOException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+}
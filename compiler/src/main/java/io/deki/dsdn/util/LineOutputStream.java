@@ -0,0 +1,56 @@
+package io.deki.dsdn.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Output stream that splits everything written to it into lines and hands every complete line to
+ * a consumer.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class LineOutputStream extends OutputStream {
+
+  private final Consumer<String> consumer;
+
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+  public LineOutputStream(Consumer<String> consumer) {
+    this.consumer = consumer;
+  }
+
+  @Override
+  public synchronized void write(int b) {
+    if (b == '\n') {
+      emit();
+    } else if (b != '\r') {
+      line.write(b);
+    }
+  }
+
+  @Override
+  public synchronized void write(byte[] bytes, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      write(bytes[i]);
+    }
+  }
+
+  /**
+   * Hands the last, unterminated line to the consumer.
+   */
+  @Override
+  public synchronized void close() {
+    if (line.size() > 0) {
+      emit();
+    }
+  }
+
+  private void emit() {
+    consumer.accept(new String(line.toByteArray(), StandardCharsets.UTF_8));
+    line.reset();
+  }
+
+}
@@ -0,0 +1,141 @@
+package io.deki.dsdn.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs external processes on a fixed number of threads. Every running process occupies one thread
+ * that pumps its standard output and one that pumps its error output, processes beyond the limit
+ * wait in line until a running one finished. Thread usage stays the same no matter how many
+ * processes are submitted.
+ *
+ * <p>Processes are started from argument arrays, so arguments can contain spaces. A process that
+ * runs into its timeout, or whose future is cancelled, is killed together with every process it
+ * started.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class ProcessEngine implements AutoCloseable {
+
+  /**
+   * Start processes and pump their standard output
+   */
+  private final ExecutorService runners;
+
+  /**
+   * Pump the error output of the running processes
+   */
+  private final ExecutorService pumps;
+
+  /**
+   * Enforces the timeouts of all processes
+   */
+  private final ScheduledExecutorService timer;
+
+  /**
+   * @param maxProcesses Number of processes that may run at once
+   */
+  public ProcessEngine(int maxProcesses) {
+    runners = Executors.newFixedThreadPool(maxProcesses, daemon("DSDN Process"));
+    pumps = Executors.newFixedThreadPool(maxProcesses, daemon("DSDN Pump"));
+    timer = Executors.newSingleThreadScheduledExecutor(daemon("DSDN Process Timer"));
+  }
+
+  /**
+   * Runs a process once a thread is free.
+   *
+   * @param command Program and its arguments
+   * @param dir     Working directory of the process, or null for the working directory of this
+   *                process
+   * @param out     Receives the standard output of the process line by line, can be null
+   * @param err     Receives the error output of the process line by line, can be null
+   * @param timeout Milliseconds the process may run before it's killed, 0 for no limit
+   * @return Future of the exit code and the resources the process tree consumed. Completes after
+   * all output has been handed over, or exceptionally with a TimeoutException. Cancelling it kills
+   * the process tree.
+   */
+  public CompletableFuture<ProcessResult> execute(List<String> command, File dir,
+      Consumer<String> out, Consumer<String> err, long timeout) {
+    CompletableFuture<ProcessResult> future = new CompletableFuture<>();
+    List<String> arguments = new ArrayList<>(command);
+    runners.execute(() -> run(arguments, dir, out, err, timeout, future));
+    return future;
+  }
+
+  private void run(List<String> command, File dir, Consumer<String> out, Consumer<String> err,
+      long timeout, CompletableFuture<ProcessResult> future) {
+    if (future.isDone()) {
+      return;
+    }
+    Process process;
+    try {
+      process = new ProcessBuilder(command).directory(dir).start();
+    } catch (IOException e) {
+      future.completeExceptionally(e);
+      return;
+    }
+    ResourceMonitor.Measurement measurement = ResourceMonitor.measure(process);
+    //cancelled or timed out while the process is still running
+    future.whenComplete((result, e) -> {
+      if (process.isAlive()) {
+        ProcessTree.kill(process);
+      }
+    });
+    ScheduledFuture<?> deadline = timeout <= 0 ? null : timer.schedule(
+        () -> future.completeExceptionally(new TimeoutException(
+            "Process " + command.get(0) + " timed out after " + timeout + "ms")),
+        timeout, TimeUnit.MILLISECONDS);
+    try {
+      Future<?> errors = pumps.submit(new StreamGobbler(process.getErrorStream(), err));
+      new StreamGobbler(process.getInputStream(), out).run();
+      errors.get();
+      int exitCode = process.waitFor();
+      future.complete(new ProcessResult(exitCode, measurement.stop()));
+    } catch (ExecutionException e) {
+      future.completeExceptionally(e.getCause());
+    } catch (InterruptedException e) {
+      future.completeExceptionally(e);
+      Thread.currentThread().interrupt();
+    } finally {
+      measurement.stop();
+      if (deadline != null) {
+        deadline.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Stops accepting processes and kills the threads once the running processes finished.
+   */
+  @Override
+  public void close() {
+    runners.shutdown();
+    pumps.shutdown();
+    timer.shutdown();
+  }
+
+  private static ThreadFactory daemon(String name) {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + " " + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+}
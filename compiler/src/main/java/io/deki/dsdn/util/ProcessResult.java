@@ -0,0 +1,36 @@
+package io.deki.dsdn.util;
+
+/**
+ * Outcome of a process run by the {@link ProcessEngine}.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class ProcessResult {
+
+  private final int exitCode;
+
+  private final ResourceUsage usage;
+
+  public ProcessResult(int exitCode, ResourceUsage usage) {
+    this.exitCode = exitCode;
+    this.usage = usage;
+  }
+
+  public int getExitCode() {
+    return exitCode;
+  }
+
+  /**
+   * @return Resources the process and all processes it started consumed
+   */
+  public ResourceUsage getUsage() {
+    return usage;
+  }
+
+  @Override
+  public String toString() {
+    return "ProcessResult(exitCode=" + exitCode + ", usage=" + usage + ")";
+  }
+
+}
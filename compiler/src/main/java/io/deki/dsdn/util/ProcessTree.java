@@ -0,0 +1,142 @@
+package io.deki.dsdn.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds and kills the descendants of a process through /proc. Build tools start processes of their
+ * own, like forked compilers or test JVMs, which survive when only the process we started is
+ * destroyed. Java 8 has no process handles, on other systems than Linux only the process itself is
+ * found.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class ProcessTree {
+
+  private static final File PROC = new File("/proc");
+
+  /**
+   * Looks up the id of a process.
+   *
+   * @param process Process to look up
+   * @return Id of the process, or -1 if it can't be determined
+   */
+  public static long pid(Process process) {
+    try {
+      //Java 9 and newer
+      return (Long) Process.class.getMethod("pid").invoke(process);
+    } catch (ReflectiveOperationException e) {
+      //Java 8 keeps the id in a private field of its UNIXProcess
+      try {
+        Field field = process.getClass().getDeclaredField("pid");
+        field.setAccessible(true);
+        return field.getLong(process);
+      } catch (ReflectiveOperationException | RuntimeException ignored) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * Lists a process and all of its descendants, parents before their children.
+   *
+   * @param pid Id of the root process
+   * @return Ids of the process tree, only the root if /proc isn't available
+   */
+  public static List<Long> list(long pid) {
+    return list(pid, children());
+  }
+
+  /**
+   * Lists a process and all of its descendants from a snapshot of the process table, parents before
+   * their children. One snapshot serves any number of trees.
+   *
+   * @param pid      Id of the root process
+   * @param children Snapshot of the process table, see {@link #children()}
+   * @return Ids of the process tree
+   */
+  public static List<Long> list(long pid, Map<Long, List<Long>> children) {
+    List<Long> tree = new ArrayList<>();
+    tree.add(pid);
+    for (int i = 0; i < tree.size(); i++) {
+      tree.addAll(children.getOrDefault(tree.get(i), Collections.emptyList()));
+    }
+    return tree;
+  }
+
+  /**
+   * Takes a snapshot of the process table by reading the parent of every process once.
+   *
+   * @return Ids of the children of every process that has children, empty if /proc isn't available
+   */
+  public static Map<Long, List<Long>> children() {
+    Map<Long, List<Long>> children = new HashMap<>();
+    File[] entries = PROC.listFiles((dir, name) -> Character.isDigit(name.charAt(0)));
+    if (entries != null) {
+      for (File entry : entries) {
+        long parent = parent(entry);
+        if (parent > 0) {
+          children.computeIfAbsent(parent, key -> new ArrayList<>())
+              .add(Long.parseLong(entry.getName()));
+        }
+      }
+    }
+    return children;
+  }
+
+  /**
+   * Kills a process and all of its descendants. The tree is listed before anything is killed,
+   * children of a killed process would otherwise be moved to a different parent.
+   *
+   * @param process Root of the process tree
+   */
+  public static void kill(Process process) {
+    long pid = pid(process);
+    if (pid > 0 && PROC.isDirectory()) {
+      List<String> command = new ArrayList<>();
+      command.add("kill");
+      command.add("-KILL");
+      for (long id : list(pid)) {
+        command.add(String.valueOf(id));
+      }
+      try {
+        new ProcessBuilder(command).redirectErrorStream(true)
+            .redirectOutput(new File("/dev/null")).start().waitFor(10, TimeUnit.SECONDS);
+      } catch (IOException e) {
+        e.printStackTrace();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    process.destroyForcibly();
+  }
+
+  /**
+   * Reads the parent of a process from /proc/[pid]/stat.
+   *
+   * @param entry /proc entry of the process
+   * @return Id of the parent, or -1 if the process is gone
+   */
+  private static long parent(File entry) {
+    try {
+      String stat = new String(Files.readAllBytes(new File(entry, "stat").toPath()),
+          StandardCharsets.UTF_8);
+      //the name in parentheses can contain spaces, the fields after it can't
+      String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+      return Long.parseLong(fields[1]);
+    } catch (IOException | RuntimeException e) {
+      return -1;
+    }
+  }
+
+}
@@ -1,7 +1,12 @@
 package io.deki.dsdn.util;
 
-import java.io.IOException;
-import java.util.concurrent.Executors;
+import io.deki.dsdn.log.LogChannel;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * @author Deki on 18.06.2021
@@ -10,25 +15,68 @@ import java.util.concurrent.Executors;
 public class ProcessUtil {
 
   /**
-   * Executes a command with javas Runtime libraries.
+   * Runs the processes of all builds, two processes per core at once
+   */
+  private static final ProcessEngine ENGINE =
+      new ProcessEngine(Runtime.getRuntime().availableProcessors() * 2);
+
+  /**
+   * Executes a command, splitting it into arguments at whitespace.
    *
    * @param command Command to execute
    * @return Exit code of the resulting process
    */
   public static int execute(String command) {
-    try {
-      Process process = Runtime.getRuntime().exec(command);
-      Executors.newSingleThreadExecutor()
-          .execute(new StreamGobbler("DSDN Error", process.getErrorStream()));
-      Executors.newSingleThreadExecutor()
-          .execute(new StreamGobbler("DSDN Info", process.getInputStream()));
-      return process.waitFor();
-    } catch (IOException e) {
-      e.printStackTrace();
-    } catch (InterruptedException e) {
-      e.printStackTrace();
+    return execute(Arrays.asList(command.trim().split("\\s+")));
+  }
+
+  /**
+   * Executes a command and prints its output.
+   *
+   * @param command Program and its arguments
+   * @return Exit code of the resulting process
+   */
+  public static int execute(List<String> command) {
+    return execute(command, null);
+  }
+
+  /**
+   * Executes a command, prints its output and hands every line the process prints to a listener.
+   * Returns after the process exited and all of its output has been handed over.
+   *
+   * @param command  Program and its arguments
+   * @param listener Receives the lines of both output streams, called from two threads, can be
+   *                 null
+   * @return Exit code of the resulting process
+   */
+  public static int execute(List<String> command, Consumer<String> listener) {
+    try (LogChannel log = LogChannel.console("DSDN " + command.get(0))) {
+      return executeAsync(command, null, log, listener, 0).join().getExitCode();
+    } catch (CompletionException e) {
+      e.getCause().printStackTrace();
     }
     return -1;
   }
 
+  /**
+   * Executes a command without waiting for it and writes its output to a log.
+   *
+   * @param command  Program and its arguments
+   * @param dir      Working directory of the process, or null for the current one
+   * @param log      Receives the lines of both output streams, stays open after the process
+   *                 exited
+   * @param listener Receives every line before it's logged, called from two threads, can be null
+   * @param timeout  Milliseconds the process may run before it's killed, 0 for no limit
+   * @return Future of the exit code and the resources the process and all processes it started
+   * consumed, cancelling it kills the process tree
+   */
+  public static CompletableFuture<ProcessResult> executeAsync(List<String> command, File dir,
+      LogChannel log, Consumer<String> listener, long timeout) {
+    Consumer<String> output = listener == null ? log::append : line -> {
+      listener.accept(line);
+      log.append(line);
+    };
+    return ENGINE.execute(command, dir, output, output, timeout);
+  }
+
 }
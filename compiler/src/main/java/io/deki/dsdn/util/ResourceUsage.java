@@ -0,0 +1,50 @@
+package io.deki.dsdn.util;
+
+/**
+ * Resources a process and all processes it started consumed.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class ResourceUsage {
+
+  /**
+   * CPU time in milliseconds, user and system time of all processes together
+   */
+  private final long cpuTime;
+
+  /**
+   * Highest resident memory of all processes together, in bytes
+   */
+  private final long peakMemory;
+
+  /**
+   * Bytes the processes caused to be written to storage
+   */
+  private final long diskBytesWritten;
+
+  public ResourceUsage(long cpuTime, long peakMemory, long diskBytesWritten) {
+    this.cpuTime = cpuTime;
+    this.peakMemory = peakMemory;
+    this.diskBytesWritten = diskBytesWritten;
+  }
+
+  public long getCpuTime() {
+    return cpuTime;
+  }
+
+  public long getPeakMemory() {
+    return peakMemory;
+  }
+
+  public long getDiskBytesWritten() {
+    return diskBytesWritten;
+  }
+
+  @Override
+  public String toString() {
+    return "ResourceUsage(cpuTime=" + cpuTime + "ms, peakMemory=" + peakMemory / 1024
+        + "KB, diskBytesWritten=" + diskBytesWritten / 1024 + "KB)";
+  }
+
+}
@@ -4,6 +4,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
 
 /**
  * The purpose of the stream gobbler is to consume a process' error/input streams
@@ -11,36 +13,39 @@ import java.io.InputStreamReader;
  * @author Deki on 22.07.2021
  * @project dsdn
  **/
-public class StreamGobbler extends Thread {
+public class StreamGobbler implements Runnable {
 
   /**
-   * An identifier that will be prepended to the line printed by the process
+   * InputStream of a process, can be ErrorStream or InputStream
    */
-  private String identifier;
+  private final InputStream stream;
 
   /**
-   * InputStream of a process, can be ErrorStream or InputStream
+   * Receives every line, null to discard the output
    */
-  private InputStream stream;
+  private final Consumer<String> listener;
 
-  public StreamGobbler(String identifier, InputStream stream) {
-    this.identifier = identifier;
+  public StreamGobbler(InputStream stream, Consumer<String> listener) {
     this.stream = stream;
+    this.listener = listener;
   }
 
   /**
-   * Takes the InputStream of a process and prints incoming lines until there are none left.
+   * Takes the InputStream of a process and hands incoming lines to the listener until there are
+   * none left. A stream that is closed because its process was killed simply ends.
    */
   @Override
   public void run() {
-    BufferedReader in = new BufferedReader(new InputStreamReader(stream));
-    try {
+    try (BufferedReader in = new BufferedReader(
+        new InputStreamReader(stream, StandardCharsets.UTF_8))) {
       String line;
       while ((line = in.readLine()) != null) {
-        System.out.printf("[%s] %s%n", identifier, line);
+        if (listener != null) {
+          listener.accept(line);
+        }
       }
-    } catch (IOException e) {
-      e.printStackTrace();
+    } catch (IOException ignored) {
+      //the process was killed
     }
   }
 
@@ -0,0 +1,145 @@
+package io.deki.dsdn.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Redirects System.out and System.err per thread instead of for the whole JVM. Once installed,
+ * both streams pass what a thread writes on to the streams it has been redirected to, or to the
+ * original console if it hasn't. Output of other threads, like the stack traces of unrelated
+ * builds, never ends up in the redirected streams.
+ *
+ * <p>Threads started by a redirected thread, like the builder threads of a parallel maven build,
+ * inherit its redirection until it ends. Thread pools that outlive a redirection and print to the
+ * console should call {@link #detach()} in their threads.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class ThreadOutput {
+
+  private static final InheritableThreadLocal<Route> ROUTE = new InheritableThreadLocal<>();
+
+  private static PrintStream console;
+
+  private static PrintStream consoleErr;
+
+  /**
+   * Replaces System.out and System.err with the routing streams, if that hasn't happened yet.
+   */
+  public static synchronized void install() {
+    if (console != null) {
+      return;
+    }
+    console = System.out;
+    consoleErr = System.err;
+    System.setOut(new PrintStream(new Router(false), true));
+    System.setErr(new PrintStream(new Router(true), true));
+  }
+
+  /**
+   * Redirects the output of the current thread, and of threads it starts, until the returned
+   * route is closed.
+   *
+   * @param out Receives what the thread writes to System.out
+   * @param err Receives what the thread writes to System.err
+   * @return Route to close once the output should go to the console again
+   */
+  public static Route redirect(PrintStream out, PrintStream err) {
+    install();
+    Route route = new Route(out, err, ROUTE.get());
+    ROUTE.set(route);
+    return route;
+  }
+
+  /**
+   * Sends the output of the current thread to the console, whatever redirection it inherited.
+   */
+  public static void detach() {
+    ROUTE.remove();
+  }
+
+  /**
+   * Output of one thread and the threads it started. Closing it restores the redirection the
+   * thread had before.
+   */
+  public static class Route implements AutoCloseable {
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Route previous;
+
+    /**
+     * Threads that inherited this route fall back to the console once it's closed
+     */
+    private volatile boolean closed;
+
+    private Route(PrintStream out, PrintStream err, Route previous) {
+      this.out = out;
+      this.err = err;
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+      if (ROUTE.get() == this) {
+        if (previous == null) {
+          ROUTE.remove();
+        } else {
+          ROUTE.set(previous);
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Passes bytes on to the stream of the writing thread.
+   */
+  private static class Router extends OutputStream {
+
+    private final boolean err;
+
+    private Router(boolean err) {
+      this.err = err;
+    }
+
+    private PrintStream target() {
+      Route route = ROUTE.get();
+      while (route != null && route.closed) {
+        route = route.previous;
+      }
+      if (route == null) {
+        return err ? consoleErr : console;
+      }
+      return err ? route.err : route.out;
+    }
+
+    @Override
+    public void write(int b) {
+      target().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      target().write(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+      target().flush();
+    }
+
+    /**
+     * The console is never closed through System.out
+     */
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+
+  }
+
+}
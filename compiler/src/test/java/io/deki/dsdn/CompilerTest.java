@@ -0,0 +1,114 @@
+package io.deki.dsdn;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks which classes an incremental compilation recompiles. Class files that shouldn't be
+ * recompiled are replaced with a marker, which survives only if the compiler leaves them alone.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class CompilerTest {
+
+  private static final byte[] MARKER = "not recompiled".getBytes(StandardCharsets.UTF_8);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File sources;
+  private File output;
+
+  @Before
+  public void setUp() throws IOException {
+    sources = temp.newFolder("src");
+    output = new File(temp.getRoot(), "classes");
+    write("Base.java", "public class Base { public static int value() { return 1; } }");
+    write("User.java", "public class User { int get() { return Base.value(); } }");
+    write("Other.java", "public class Other { }");
+    assertTrue(Compiler.compileIncremental(sources, output).isSuccess());
+  }
+
+  @Test
+  public void unchangedSourcesAreNotRecompiled() throws IOException {
+    mark("Base", "User", "Other");
+    assertTrue(Compiler.compileIncremental(sources, output).isSuccess());
+    assertMarked("Base", "User", "Other");
+  }
+
+  @Test
+  public void changedSourceAndDependentsAreRecompiled() throws IOException {
+    mark("Base", "User", "Other");
+    write("Base.java", "public class Base { public static int value() { return 2; } }");
+    assertTrue(Compiler.compileIncremental(sources, output).isSuccess());
+    assertRecompiled("Base", "User");
+    assertMarked("Other");
+  }
+
+  @Test
+  public void classesOfRemovedSourcesAreDeleted() throws IOException {
+    Files.delete(new File(sources, "Other.java").toPath());
+    assertTrue(Compiler.compileIncremental(sources, output).isSuccess());
+    assertFalse(new File(output, "Other.class").exists());
+    assertTrue(new File(output, "User.class").exists());
+  }
+
+  @Test
+  public void changedConstantRecompilesEverything() throws IOException {
+    write("Base.java", "public class Base { public static final int VALUE = 1;"
+        + " public static int value() { return VALUE; } }");
+    assertTrue(Compiler.compileIncremental(sources, output).isSuccess());
+    mark("Base", "User", "Other");
+    write("Base.java", "public class Base { public static final int VALUE = 2;"
+        + " public static int value() { return VALUE; } }");
+    assertTrue(Compiler.compileIncremental(sources, output).isSuccess());
+    assertRecompiled("Base", "User", "Other");
+  }
+
+  @Test
+  public void relativeSourceDirectoryIsIncremental() throws IOException {
+    File relative = new File(new File("").getAbsoluteFile().toPath()
+        .relativize(sources.toPath()).toString());
+    assertTrue(Compiler.compileIncremental(relative, output).isSuccess());
+    mark("Base", "User", "Other");
+    assertTrue(Compiler.compileIncremental(relative, output).isSuccess());
+    assertMarked("Base", "User", "Other");
+  }
+
+  private void write(String name, String content) throws IOException {
+    Files.write(new File(sources, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void mark(String... classes) throws IOException {
+    for (String name : classes) {
+      Files.write(new File(output, name + ".class").toPath(), MARKER);
+    }
+  }
+
+  private void assertMarked(String... classes) throws IOException {
+    for (String name : classes) {
+      assertArrayEquals(name, MARKER, Files.readAllBytes(new File(output, name + ".class")
+          .toPath()));
+    }
+  }
+
+  private void assertRecompiled(String... classes) throws IOException {
+    for (String name : classes) {
+      assertFalse(name, Arrays.equals(MARKER, Files.readAllBytes(
+          new File(output, name + ".class").toPath())));
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+package io.deki.dsdn.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.deki.dsdn.compile.BuildManifest;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class ArtifactCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = temp.newFolder("cache");
+  }
+
+  @Test
+  public void concurrentGetsCopyWholeArtifactsWhilePutsEvict() throws Exception {
+    ArtifactCache cache = new ArtifactCache(dir, 300);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++) {
+        char fill = (char) ('a' + thread);
+        File source = artifact(fill);
+        File output = temp.newFile();
+        results.add(executor.submit(() -> {
+          for (int i = 0; i < 200; i++) {
+            cache.put(key(String.valueOf(fill)), source);
+            //the artifact may have been evicted by another thread, but never torn
+            if (cache.get(key(String.valueOf(fill)), output)
+                && !Arrays.equals(content(fill), Files.readAllBytes(output.toPath()))) {
+              return false;
+            }
+          }
+          return true;
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.size() <= 300);
+  }
+
+  @Test
+  public void leastRecentlyUsedArtifactIsEvicted() throws IOException {
+    ArtifactCache cache = new ArtifactCache(dir, 250);
+    assertTrue(cache.put(key("a"), artifact('a')));
+    assertTrue(cache.put(key("b"), artifact('b')));
+    assertTrue(cache.get(key("a"), temp.newFile()));
+    assertTrue(cache.put(key("c"), artifact('c')));
+    assertEquals(200, cache.size());
+    assertTrue(cache.get(key("a"), temp.newFile()));
+    assertFalse(cache.get(key("b"), temp.newFile()));
+    assertTrue(cache.get(key("c"), temp.newFile()));
+  }
+
+  @Test
+  public void artifactLargerThanTheBudgetIsKept() throws IOException {
+    ArtifactCache cache = new ArtifactCache(dir, 50);
+    assertTrue(cache.put(key("a"), artifact('a')));
+    assertTrue(cache.put(key("b"), artifact('b')));
+    assertFalse(cache.get(key("a"), temp.newFile()));
+    assertTrue(cache.get(key("b"), temp.newFile()));
+  }
+
+  @Test
+  public void writingToTheOutputKeepsTheStoredArtifact() throws IOException {
+    ArtifactCache cache = new ArtifactCache(dir, 1000);
+    cache.put(key("a"), artifact('a'));
+    File output = temp.newFile();
+    assertTrue(cache.get(key("a"), output));
+    Files.write(output.toPath(), new byte[]{1, 2, 3});
+    File again = temp.newFile();
+    assertTrue(cache.get(key("a"), again));
+    assertArrayEquals(content('a'), Files.readAllBytes(again.toPath()));
+  }
+
+  @Test
+  public void storedArtifactsSurviveReopening() throws IOException {
+    new ArtifactCache(dir, 1000).put(key("a"), artifact('a'));
+    ArtifactCache reopened = new ArtifactCache(dir, 1000);
+    assertEquals(100, reopened.size());
+    File output = temp.newFile();
+    assertTrue(reopened.get(key("a"), output));
+    assertArrayEquals(content('a'), Files.readAllBytes(output.toPath()));
+  }
+
+  @Test
+  public void artifactIsBuiltOnce() throws IOException {
+    ArtifactCache cache = new ArtifactCache(dir, 1000);
+    AtomicInteger builds = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      assertTrue(cache.getOrBuild(key("a"), temp.newFile(), output -> {
+        builds.incrementAndGet();
+        try {
+          Files.write(output.toPath(), content('a'));
+          return true;
+        } catch (IOException e) {
+          return false;
+        }
+      }));
+    }
+    assertEquals(1, builds.get());
+  }
+
+  /**
+   * Keys are hashes of the build inputs, artifacts are stored in folders named after their prefix
+   */
+  private static String key(String inputs) {
+    return BuildManifest.hash(inputs);
+  }
+
+  private File artifact(char fill) throws IOException {
+    File file = temp.newFile();
+    Files.write(file.toPath(), content(fill));
+    return file;
+  }
+
+  private static byte[] content(char fill) {
+    byte[] bytes = new byte[100];
+    Arrays.fill(bytes, (byte) fill);
+    return bytes;
+  }
+
+}
@@ -0,0 +1,48 @@
+package io.deki.dsdn.jar;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.IOException;
+import org.junit.Test;
+
+/**
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class BinaryDeltaTest {
+
+  @Test
+  public void patchRestoresTheNewBytes() throws IOException {
+    byte[] previous = new byte[1000];
+    for (int i = 0; i < previous.length; i++) {
+      previous[i] = (byte) (i * 7 % 253);
+    }
+    byte[] current = new byte[1100];
+    System.arraycopy(previous, 0, current, 0, 500);
+    System.arraycopy(previous, 400, current, 500, 600);
+    current[900] ^= 0x11;
+    assertArrayEquals(current, BinaryDelta.patch(previous, BinaryDelta.diff(previous, current)));
+    assertArrayEquals(new byte[0], BinaryDelta.patch(previous, BinaryDelta.diff(previous,
+        new byte[0])));
+  }
+
+  @Test(expected = IOException.class)
+  public void overflowingCopyIsRejected() throws IOException {
+    //copy from offset 1, length Integer.MAX_VALUE
+    BinaryDelta.patch(new byte[16], new byte[]{0, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+        (byte) 0xFF, 0x07, 2});
+  }
+
+  @Test(expected = IOException.class)
+  public void overflowingInsertIsRejected() throws IOException {
+    //insert of length Integer.MAX_VALUE
+    BinaryDelta.patch(new byte[16], new byte[]{1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+        (byte) 0xFF, 0x07, 2});
+  }
+
+  @Test(expected = IOException.class)
+  public void truncatedDeltaIsRejected() throws IOException {
+    BinaryDelta.patch(new byte[16], new byte[]{1, 4, 1, 2});
+  }
+
+}
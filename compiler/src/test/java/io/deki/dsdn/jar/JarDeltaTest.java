@@ -0,0 +1,169 @@
+package io.deki.dsdn.jar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DeflaterOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class JarDeltaTest {
+
+  private static final byte[] MAGIC = "DSDNDLT1".getBytes(StandardCharsets.US_ASCII);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private Map<String, byte[]> before;
+  private Map<String, byte[]> after;
+  private File previous;
+  private File current;
+
+  @Before
+  public void setUp() throws IOException {
+    byte[] large = new byte[4096];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) (i * 31 % 251);
+    }
+    byte[] edited = large.clone();
+    edited[2000] ^= 0x55;
+    before = new TreeMap<>();
+    before.put("a/Kept.class", bytes("kept"));
+    before.put("a/Changed.class", bytes("old contents"));
+    before.put("a/Large.class", large);
+    before.put("b/Removed.class", bytes("removed"));
+    after = new TreeMap<>();
+    after.put("a/Kept.class", bytes("kept"));
+    after.put("a/Changed.class", bytes("new contents"));
+    after.put("a/Large.class", edited);
+    after.put("c/Added.class", bytes("added"));
+    previous = jar("previous.jar", before);
+    current = jar("current.jar", after);
+  }
+
+  @Test
+  public void patchedJarMatchesTheNewJar() throws IOException {
+    roundTrip(false);
+  }
+
+  @Test
+  public void binaryDiffedJarMatchesTheNewJar() throws IOException {
+    roundTrip(true);
+  }
+
+  @Test
+  public void binaryDiffShrinksSmallEdits() throws IOException {
+    File plain = temp.newFile("plain.patch");
+    File diffed = temp.newFile("diffed.patch");
+    JarDelta.create(previous, current, plain, false);
+    JarDelta.create(previous, current, diffed, true);
+    assertTrue(diffed.length() < plain.length());
+  }
+
+  @Test
+  public void corruptedPatchIsRejected() throws IOException {
+    File patch = temp.newFile("valid.patch");
+    JarDelta.create(previous, current, patch, true);
+    byte[] data = Files.readAllBytes(patch.toPath());
+    File truncated = temp.newFile("truncated.patch");
+    Files.write(truncated.toPath(), Arrays.copyOf(data, data.length / 2));
+    assertRejected(previous, truncated);
+    File garbage = temp.newFile("garbage.patch");
+    Files.write(garbage.toPath(), bytes("not a patch at all"));
+    assertRejected(previous, garbage);
+  }
+
+  @Test
+  public void oversizedEntryLengthIsRejected() throws IOException {
+    File patch = temp.newFile("oversized.patch");
+    try (DataOutputStream out = patchStream(patch)) {
+      out.write(MAGIC);
+      out.writeUTF(JarDelta.digest(before));
+      out.writeUTF(JarDelta.digest(after));
+      out.writeByte(1);
+      out.writeUTF("c/Added.class");
+      out.writeInt(Integer.MAX_VALUE);
+      out.write(bytes("added"));
+    }
+    assertRejected(previous, patch);
+  }
+
+  @Test
+  public void wrongChecksumIsRejected() throws IOException {
+    File patch = temp.newFile("wrong.patch");
+    try (DataOutputStream out = patchStream(patch)) {
+      out.write(MAGIC);
+      out.writeUTF(JarDelta.digest(before));
+      out.writeUTF(JarDelta.digest(after));
+      //removes an entry the new jar still has
+      out.writeByte(4);
+      out.writeUTF("a/Kept.class");
+      out.writeByte(0);
+    }
+    assertRejected(previous, patch);
+  }
+
+  @Test
+  public void patchForAnotherJarIsRejected() throws IOException {
+    File patch = temp.newFile("valid.patch");
+    JarDelta.create(previous, current, patch, true);
+    assertRejected(current, patch);
+  }
+
+  private void roundTrip(boolean binaryDiff) throws IOException {
+    File patch = temp.newFile();
+    File output = temp.newFile();
+    JarDelta.create(previous, current, patch, binaryDiff);
+    JarDelta.apply(previous, patch, output);
+    Map<String, byte[]> expected = JarDelta.readEntries(current);
+    Map<String, byte[]> patched = JarDelta.readEntries(output);
+    assertEquals(expected.keySet(), patched.keySet());
+    for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+      assertArrayEquals(entry.getValue(), patched.get(entry.getKey()));
+    }
+    assertArrayEquals(Files.readAllBytes(current.toPath()), Files.readAllBytes(output.toPath()));
+  }
+
+  private void assertRejected(File jar, File patch) throws IOException {
+    File output = new File(temp.getRoot(), "rejected.jar");
+    try {
+      JarDelta.apply(jar, patch, output);
+      fail("Applied patch " + patch.getName());
+    } catch (IOException expected) {
+      //a bad patch never produces a jar
+    }
+    assertFalse(output.exists());
+  }
+
+  private File jar(String name, Map<String, byte[]> entries) throws IOException {
+    File jar = temp.newFile(name);
+    new JarWriter().write(entries, jar);
+    return jar;
+  }
+
+  private static DataOutputStream patchStream(File patch) throws IOException {
+    return new DataOutputStream(new DeflaterOutputStream(Files.newOutputStream(patch.toPath())));
+  }
+
+  private static byte[] bytes(String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,99 @@
+package io.deki.dsdn.jar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class JarWriterTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void sameDirectoryGivesIdenticalJars() throws IOException {
+    File dir = temp.newFolder("classes");
+    write(dir, "a/A.class", "first");
+    write(dir, "b/B.class", "second");
+    write(dir, "b/c/data.png", "already compressed");
+    File first = temp.newFile("first.jar");
+    new JarWriter().write(dir, first);
+    //timestamps of the files aren't part of the jar
+    for (String path : new String[]{"a/A.class", "b/B.class", "b/c/data.png"}) {
+      new File(dir, path).setLastModified(System.currentTimeMillis() - 86_400_000L);
+    }
+    File second = temp.newFile("second.jar");
+    new JarWriter().write(dir, second);
+    assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+  }
+
+  @Test
+  public void entryOrderDoesNotChangeTheJar() throws IOException {
+    Map<String, byte[]> entries = new HashMap<>();
+    Map<String, byte[]> reversed = new LinkedHashMap<>();
+    for (int i = 0; i < 50; i++) {
+      entries.put("p/C" + i + ".class", ("class " + i).getBytes(StandardCharsets.UTF_8));
+    }
+    List<String> names = new ArrayList<>(entries.keySet());
+    names.sort((a, b) -> b.compareTo(a));
+    for (String name : names) {
+      reversed.put(name, entries.get(name));
+    }
+    File first = temp.newFile("first.jar");
+    File second = temp.newFile("second.jar");
+    new JarWriter().write(entries, first);
+    new JarWriter().write(reversed, second);
+    assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+  }
+
+  @Test
+  public void jarContainsEveryFile() throws IOException {
+    File dir = temp.newFolder("classes");
+    write(dir, "a/A.class", "first");
+    write(dir, "b/B.class", "second");
+    File jar = temp.newFile("out.jar");
+    new JarWriter().write(dir, jar);
+    try (JarFile file = new JarFile(jar)) {
+      assertEquals("first", read(file, file.getJarEntry("a/A.class")));
+      assertEquals("second", read(file, file.getJarEntry("b/B.class")));
+    }
+  }
+
+  private static void write(File dir, String path, String content) throws IOException {
+    File file = new File(dir, path);
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(JarFile file, JarEntry entry) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = file.getInputStream(entry)) {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,136 @@
+package io.deki.dsdn.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Installs a fake distribution from a local zip, the installer reads it through a file url.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class MavenInstallerTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private File zip;
+  private File home;
+
+  @Before
+  public void setUp() throws IOException {
+    zip = temp.newFile("apache-maven-bin.zip");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+      entry(out, "apache-maven/bin/m2.conf", "main is org.apache.maven.cli.MavenCli");
+      entry(out, "apache-maven/bin/mvn", "#!/bin/sh");
+      entry(out, "apache-maven/boot/plexus-classworlds-2.8.0.jar", "jar");
+    }
+    home = new File(temp.getRoot(), "maven");
+  }
+
+  @Test
+  public void verifiedDistributionIsInstalled() throws Exception {
+    checksum(sha512(Files.readAllBytes(zip.toPath())) + "  apache-maven-bin.zip");
+    assertEquals(home, installer().install().get());
+    assertTrue(MavenInstaller.isInstalled(home));
+    assertTrue(new File(home, "bin/mvn").canExecute());
+  }
+
+  @Test
+  public void checksumMismatchIsRejected() throws Exception {
+    checksum(sha512("something else".getBytes(StandardCharsets.UTF_8)));
+    try {
+      installer().install().get();
+      fail("Installed a distribution with the wrong checksum");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+      assertTrue(e.getCause().getMessage().startsWith("Checksum mismatch"));
+    }
+    assertFalse(home.exists());
+    //no staging folders are left behind
+    assertEquals(0, temp.getRoot().listFiles((dir, name) -> name.endsWith(".tmp")).length);
+  }
+
+  @Test
+  public void failedInstallationIsRetried() throws Exception {
+    checksum(sha512("something else".getBytes(StandardCharsets.UTF_8)));
+    MavenInstaller installer = installer();
+    try {
+      installer.install().get();
+      fail("Installed a distribution with the wrong checksum");
+    } catch (ExecutionException expected) {
+      //retried below
+    }
+    checksum(sha512(Files.readAllBytes(zip.toPath())));
+    assertEquals(home, installer.install().get());
+  }
+
+  @Test
+  public void removedInstallationIsReinstalled() throws Exception {
+    checksum(sha512(Files.readAllBytes(zip.toPath())));
+    MavenInstaller installer = installer();
+    assertEquals(home, installer.install().get());
+    FileUtils.deleteDirectory(home);
+    assertEquals(home, installer.install().get());
+    assertTrue(MavenInstaller.isInstalled(home));
+  }
+
+  @Test
+  public void incompleteInstallationIsReported() throws Exception {
+    checksum(sha512(Files.readAllBytes(zip.toPath())));
+    MavenInstaller installer = installer();
+    assertEquals(home, installer.install().get());
+    FileUtils.deleteDirectory(new File(home, "boot"));
+    try {
+      installer.install().get();
+      fail("Used a distribution without a plexus-classworlds jar");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause().getMessage().startsWith("Incomplete maven distribution"));
+    }
+    //left for the user to remove
+    assertTrue(new File(home, "bin/mvn").isFile());
+  }
+
+  private MavenInstaller installer() throws IOException {
+    return new MavenInstaller(home, zip.toURI().toURL().toString());
+  }
+
+  private void checksum(String line) throws IOException {
+    Files.write(new File(zip.getPath() + ".sha512").toPath(),
+        line.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void entry(ZipOutputStream out, String name, String content)
+      throws IOException {
+    out.putNextEntry(new ZipEntry(name));
+    out.write(content.getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+  }
+
+  private static String sha512(byte[] data) throws NoSuchAlgorithmException {
+    StringBuilder builder = new StringBuilder();
+    for (byte b : MessageDigest.getInstance("SHA-512").digest(data)) {
+      builder.append(String.format("%02x", b));
+    }
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,144 @@
+package io.deki.dsdn.scheduler;
+
+import io.deki.dsdn.log.LogChannel;
+import java.io.File;
+
+/**
+ * Describes a build of a developer repository: clone it, then either compile its sources to a jar
+ * or run a maven goal on it.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class BuildRequest {
+
+  /**
+   * GitLab subgroup the repository belongs to, builds are shared fairly between subgroups
+   */
+  private final String subgroup;
+
+  /**
+   * Builds with a higher priority are started first
+   */
+  private final int priority;
+
+  /**
+   * HTTP(S) url of the repository to clone
+   */
+  private final String url;
+
+  /**
+   * Directory to clone the repository to
+   */
+  private final File workspace;
+
+  /**
+   * Jar file to package the compiled sources to, unused for maven builds
+   */
+  private final File output;
+
+  /**
+   * Libraries to add to the classpath when compiling, unused for maven builds
+   */
+  private final File[] libraries;
+
+  /**
+   * Credentials for cloning, null if the repository is public
+   */
+  private String username;
+  private String password;
+
+  /**
+   * Maven plugin to run instead of compiling the sources, null to compile with the java compiler
+   */
+  private String mavenPlugin;
+
+  /**
+   * Output of the build, closed when the build finished
+   */
+  private final LogChannel log;
+
+  /**
+   * @param subgroup  GitLab subgroup the repository belongs to
+   * @param priority  Builds with a higher priority are started first
+   * @param url       HTTP(S) url of the repository to clone
+   * @param workspace Directory to clone the repository to
+   * @param output    Jar file to package the compiled sources to
+   * @param libraries Libraries to add to the classpath when compiling
+   */
+  public BuildRequest(String subgroup, int priority, String url, File workspace, File output,
+      File... libraries) {
+    this.subgroup = subgroup;
+    this.priority = priority;
+    this.url = url;
+    this.workspace = workspace;
+    this.output = output;
+    this.libraries = libraries;
+    this.log = new LogChannel(subgroup + "/" + workspace.getName());
+  }
+
+  /**
+   * Clones the repository with username/password authentication.
+   *
+   * @return This request
+   */
+  public BuildRequest withCredentials(String username, String password) {
+    this.username = username;
+    this.password = password;
+    return this;
+  }
+
+  /**
+   * Builds the repository with a maven plugin, like "package", instead of the java compiler.
+   *
+   * @return This request
+   */
+  public BuildRequest withMaven(String plugin) {
+    this.mavenPlugin = plugin;
+    return this;
+  }
+
+  public String getSubgroup() {
+    return subgroup;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public File getWorkspace() {
+    return workspace;
+  }
+
+  public File getOutput() {
+    return output;
+  }
+
+  public File[] getLibraries() {
+    return libraries;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getPassword() {
+    return password;
+  }
+
+  public String getMavenPlugin() {
+    return mavenPlugin;
+  }
+
+  /**
+   * @return Output of the build, subscribe to it to store it or to follow the build live
+   */
+  public LogChannel getLog() {
+    return log;
+  }
+
+}
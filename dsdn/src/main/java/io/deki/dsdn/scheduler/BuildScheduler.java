@@ -0,0 +1,248 @@
+package io.deki.dsdn.scheduler;
+
+import io.deki.dsdn.CompilationResult;
+import io.deki.dsdn.Compiler;
+import io.deki.dsdn.MavenWrapper;
+import io.deki.dsdn.VCS;
+import io.deki.dsdn.util.AdmissionController;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Runs builds of many developers at once without oversubscribing the host. Every build is split in
+ * an IO-heavy clone step and a CPU-heavy compile step, which run on separate bounded worker pools.
+ * Waiting steps are started by priority, and round-robin between GitLab subgroups for steps of
+ * equal priority.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class BuildScheduler implements AutoCloseable {
+
+  /**
+   * Steps waiting for a clone worker
+   */
+  private final FairQueue<Step<?>> ioQueue = new FairQueue<>();
+
+  /**
+   * Steps waiting for a compile worker
+   */
+  private final FairQueue<Step<?>> cpuQueue = new FairQueue<>();
+
+  private final List<Thread> workers = new ArrayList<>();
+
+  /**
+   * Creates a scheduler with one compile worker per core and two clone workers per core, since
+   * clones spend most of their time waiting on the network.
+   */
+  public BuildScheduler() {
+    this(Runtime.getRuntime().availableProcessors() * 2,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param ioWorkers  Maximum number of clone steps running at once
+   * @param cpuWorkers Maximum number of compile steps running at once
+   */
+  public BuildScheduler(int ioWorkers, int cpuWorkers) {
+    startWorkers("DSDN IO", ioWorkers, ioQueue);
+    startWorkers("DSDN CPU", cpuWorkers, cpuQueue);
+  }
+
+  /**
+   * Schedules a build: the repository is cloned on a clone worker, then compiled on a compile
+   * worker once the host isn't overloaded. The output of the build goes to the log of the
+   * request.
+   *
+   * @param request Build to schedule
+   * @return Future completed with the result of the compilation, or with an IOException if the
+   * repository couldn't be cloned. Cancelling it cancels the step that is waiting or running.
+   */
+  public CompletableFuture<CompilationResult> submit(BuildRequest request) {
+    CompletableFuture<CompilationResult> build = new CompletableFuture<>();
+    CompletableFuture<Void> clone = submitIo(request.getSubgroup(), request.getPriority(), () -> {
+      boolean cloned;
+      if (request.getUsername() != null) {
+        cloned = VCS.cleanCloneAuthedRepo(request.getUrl(), request.getWorkspace(),
+            request.getUsername(), request.getPassword());
+      } else {
+        cloned = VCS.cleanCloneRepo(request.getUrl(), request.getWorkspace());
+      }
+      if (!cloned) {
+        //compiling whatever is left in the workspace would report a broken or empty build
+        request.getLog().append("Failed to clone " + request.getUrl());
+        throw new IOException("Failed to clone " + request.getUrl());
+      }
+      return null;
+    });
+    clone.whenComplete((cloned, e) -> {
+      if (e != null) {
+        build.completeExceptionally(e);
+        return;
+      }
+      CompletableFuture<CompilationResult> compile = submitCpu(request.getSubgroup(),
+          request.getPriority(), () -> {
+            if (request.getMavenPlugin() != null) {
+              boolean success = MavenWrapper.executeMavenBuild(request.getWorkspace(),
+                  request.getMavenPlugin(), request.getLog()).isSuccess();
+              return new CompilationResult(success, Collections.emptyList());
+            }
+            //maven builds wait for admission themselves
+            AdmissionController.await();
+            CompilationResult result = Compiler.compileToJar(request.getWorkspace(),
+                request.getOutput(), request.getLibraries());
+            for (Diagnostic<? extends JavaFileObject> diagnostic : result.getDiagnostics()) {
+              request.getLog().append(diagnostic.toString());
+            }
+            return result;
+          });
+      compile.whenComplete((result, f) -> {
+        if (f != null) {
+          build.completeExceptionally(f);
+        } else {
+          build.complete(result);
+        }
+      });
+      build.whenComplete((result, f) -> compile.cancel(true));
+    });
+    build.whenComplete((result, e) -> {
+      //no-ops once the steps are done, interrupts them if the build was cancelled
+      clone.cancel(true);
+      request.getLog().close();
+    });
+    return build;
+  }
+
+  /**
+   * Schedules an IO-heavy step, like cloning or fetching, on a clone worker.
+   *
+   * @param subgroup GitLab subgroup the step runs for
+   * @param priority Steps with a higher priority are started first
+   * @param step     Step to run
+   * @return Future completed with the result of the step
+   */
+  public <T> CompletableFuture<T> submitIo(String subgroup, int priority, Callable<T> step) {
+    return enqueue(ioQueue, new Step<>(subgroup, priority, step));
+  }
+
+  /**
+   * Schedules a CPU-heavy step, like compiling or packaging, on a compile worker.
+   *
+   * @param subgroup GitLab subgroup the step runs for
+   * @param priority Steps with a higher priority are started first
+   * @param step     Step to run
+   * @return Future completed with the result of the step
+   */
+  public <T> CompletableFuture<T> submitCpu(String subgroup, int priority, Callable<T> step) {
+    return enqueue(cpuQueue, new Step<>(subgroup, priority, step));
+  }
+
+  /**
+   * @return Number of steps waiting for a worker
+   */
+  public int getPendingSteps() {
+    return ioQueue.size() + cpuQueue.size();
+  }
+
+  /**
+   * Stops all workers. Steps that haven't started yet are cancelled, running steps are
+   * interrupted.
+   */
+  @Override
+  public void close() {
+    List<Step<?>> pending = new ArrayList<>(ioQueue.close());
+    pending.addAll(cpuQueue.close());
+    for (Step<?> step : pending) {
+      step.future.cancel(false);
+    }
+    for (Thread worker : workers) {
+      worker.interrupt();
+    }
+  }
+
+  private <T> CompletableFuture<T> enqueue(FairQueue<Step<?>> queue, Step<T> step) {
+    if (!queue.offer(step)) {
+      step.future.completeExceptionally(new CancellationException("Scheduler is closed"));
+    }
+    return step.future;
+  }
+
+  private void startWorkers(String name, int count, FairQueue<Step<?>> queue) {
+    for (int i = 0; i < count; i++) {
+      Thread worker = new Thread(() -> {
+        try {
+          Step<?> step;
+          while ((step = queue.take()) != null) {
+            step.run();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }, name + " Worker " + (i + 1));
+      worker.setDaemon(true);
+      worker.start();
+      workers.add(worker);
+    }
+  }
+
+  /**
+   * A step waiting in one of the queues, together with the future of its result.
+   */
+  private static class Step<T> extends FairQueue.Task {
+
+    private final Callable<T> callable;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
+    /**
+     * Worker running the step, null while it waits or once it's done. Guarded by this
+     */
+    private Thread runner;
+
+    Step(String subgroup, int priority, Callable<T> callable) {
+      super(subgroup, priority);
+      this.callable = callable;
+      future.whenComplete((result, e) -> {
+        if (future.isCancelled()) {
+          interrupt();
+        }
+      });
+    }
+
+    void run() {
+      synchronized (this) {
+        if (future.isDone()) {
+          return;
+        }
+        runner = Thread.currentThread();
+      }
+      try {
+        future.complete(callable.call());
+      } catch (Throwable t) {
+        future.completeExceptionally(t);
+      } finally {
+        synchronized (this) {
+          runner = null;
+          if (future.isCancelled()) {
+            //the interrupt was meant for this step, not for the next one of the worker
+            Thread.interrupted();
+          }
+        }
+      }
+    }
+
+    private synchronized void interrupt() {
+      if (runner != null) {
+        runner.interrupt();
+      }
+    }
+
+  }
+
+}
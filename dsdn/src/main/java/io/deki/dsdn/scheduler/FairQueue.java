@@ -0,0 +1,156 @@
+package io.deki.dsdn.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Blocking queue that hands out tasks by priority first, and round-robin between tenants for tasks
+ * of equal priority. A tenant that submits many builds at once only gets every n-th slot when n
+ * tenants are waiting, instead of starving everybody else.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+class FairQueue<T extends FairQueue.Task> {
+
+  /**
+   * Waiting tasks per tenant, highest priority first
+   */
+  private final Map<String, PriorityQueue<T>> queues = new HashMap<>();
+
+  /**
+   * Tenants with waiting tasks, least recently served first
+   */
+  private final Deque<String> rotation = new ArrayDeque<>();
+
+  /**
+   * Incremented for every task, keeps tasks of equal priority in submission order
+   */
+  private long sequence;
+
+  private boolean closed;
+
+  /**
+   * Adds a task to the queue of its tenant.
+   *
+   * @param task Task to add
+   * @return Whether or not the task was added, false if the queue is closed
+   */
+  synchronized boolean offer(T task) {
+    if (closed) {
+      return false;
+    }
+    task.setSequence(sequence++);
+    PriorityQueue<T> queue = queues.get(task.getTenant());
+    if (queue == null) {
+      queue = new PriorityQueue<>();
+      queues.put(task.getTenant(), queue);
+      rotation.addLast(task.getTenant());
+    }
+    queue.add(task);
+    notify();
+    return true;
+  }
+
+  /**
+   * Waits for and removes the next task: the highest priority task at the head of any tenant's
+   * queue, from the least recently served tenant if several tenants have one.
+   *
+   * @return The next task, or null if the queue was closed
+   * @throws InterruptedException If interrupted while waiting
+   */
+  synchronized T take() throws InterruptedException {
+    while (rotation.isEmpty() && !closed) {
+      wait();
+    }
+    if (closed) {
+      return null;
+    }
+    String next = null;
+    int best = Integer.MIN_VALUE;
+    for (String tenant : rotation) {
+      int priority = queues.get(tenant).peek().getPriority();
+      if (next == null || priority > best) {
+        next = tenant;
+        best = priority;
+      }
+    }
+    PriorityQueue<T> queue = queues.get(next);
+    T task = queue.poll();
+    rotation.remove(next);
+    if (queue.isEmpty()) {
+      queues.remove(next);
+    } else {
+      rotation.addLast(next);
+    }
+    return task;
+  }
+
+  /**
+   * Closes the queue, wakes up every waiting worker and removes all waiting tasks.
+   *
+   * @return Tasks that were still waiting
+   */
+  synchronized List<T> close() {
+    closed = true;
+    List<T> pending = new ArrayList<>();
+    for (Iterator<PriorityQueue<T>> it = queues.values().iterator(); it.hasNext(); ) {
+      pending.addAll(it.next());
+      it.remove();
+    }
+    rotation.clear();
+    notifyAll();
+    return pending;
+  }
+
+  synchronized int size() {
+    int size = 0;
+    for (PriorityQueue<T> queue : queues.values()) {
+      size += queue.size();
+    }
+    return size;
+  }
+
+  /**
+   * A unit of work belonging to a tenant.
+   */
+  abstract static class Task implements Comparable<Task> {
+
+    private final String tenant;
+    private final int priority;
+    private long sequence;
+
+    Task(String tenant, int priority) {
+      this.tenant = tenant;
+      this.priority = priority;
+    }
+
+    String getTenant() {
+      return tenant;
+    }
+
+    int getPriority() {
+      return priority;
+    }
+
+    void setSequence(long sequence) {
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(Task other) {
+      if (priority != other.priority) {
+        return Integer.compare(other.priority, priority);
+      }
+      return Long.compare(sequence, other.sequence);
+    }
+
+  }
+
+}
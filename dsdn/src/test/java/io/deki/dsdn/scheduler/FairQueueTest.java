@@ -0,0 +1,91 @@
+package io.deki.dsdn.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class FairQueueTest {
+
+  private final FairQueue<Named> queue = new FairQueue<>();
+
+  @Test
+  public void tasksOfOneTenantKeepSubmissionOrder() throws InterruptedException {
+    offer("a", 0, "a1", "a2", "a3");
+    assertEquals(Arrays.asList("a1", "a2", "a3"), take(3));
+  }
+
+  @Test
+  public void higherPriorityGoesFirst() throws InterruptedException {
+    offer("a", 0, "low");
+    offer("b", 5, "high");
+    offer("a", 1, "medium");
+    assertEquals(Arrays.asList("high", "medium", "low"), take(3));
+  }
+
+  @Test
+  public void tenantsTakeTurns() throws InterruptedException {
+    offer("a", 0, "a1", "a2", "a3", "a4");
+    offer("b", 0, "b1", "b2");
+    offer("c", 0, "c1");
+    assertEquals(Arrays.asList("a1", "b1", "c1", "a2", "b2", "a3", "a4"), take(7));
+  }
+
+  @Test
+  public void servedTenantGoesToTheBackOfTheRotation() throws InterruptedException {
+    offer("a", 0, "a1", "a2");
+    offer("b", 0, "b1");
+    assertEquals(Arrays.asList("a1"), take(1));
+    offer("c", 0, "c1");
+    assertEquals(Arrays.asList("b1", "a2", "c1"), take(3));
+  }
+
+  @Test
+  public void closingReturnsWaitingTasks() throws InterruptedException {
+    offer("a", 0, "a1", "a2");
+    offer("b", 0, "b1");
+    List<String> pending = new ArrayList<>();
+    for (Named task : queue.close()) {
+      pending.add(task.name);
+    }
+    pending.sort(null);
+    assertEquals(Arrays.asList("a1", "a2", "b1"), pending);
+    assertEquals(0, queue.size());
+    assertNull(queue.take());
+    assertFalse(queue.offer(new Named("a", 0, "late")));
+  }
+
+  private void offer(String tenant, int priority, String... names) {
+    for (String name : names) {
+      queue.offer(new Named(tenant, priority, name));
+    }
+  }
+
+  private List<String> take(int count) throws InterruptedException {
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      names.add(queue.take().name);
+    }
+    return names;
+  }
+
+  private static class Named extends FairQueue.Task {
+
+    private final String name;
+
+    Named(String tenant, int priority, String name) {
+      super(tenant, priority);
+      this.name = name;
+    }
+
+  }
+
+}
@@ -1,23 +1,169 @@
 package io.deki.dsdn;
 
+import io.deki.dsdn.git.ChangeDetector;
+import io.deki.dsdn.git.CloneOptions;
+import io.deki.dsdn.git.Cloner;
+import io.deki.dsdn.git.MirrorCache;
+import io.deki.dsdn.git.ObjectPool;
+import io.deki.dsdn.git.RepositorySync;
+import io.deki.dsdn.git.SyncResult;
+import io.deki.dsdn.git.SyncTarget;
+import io.deki.dsdn.workspace.WorkspaceManager;
 import java.io.File;
 import java.io.IOException;
-import org.apache.commons.io.FileUtils;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
 public class VCS {
 
+  /**
+   * Mirrors of cloned repositories, null to clone straight from the remote
+   */
+  private static volatile MirrorCache mirrors;
+
+  /**
+   * Shared objects of cloned repositories, null to give every clone its own objects
+   */
+  private static volatile ObjectPool pool;
+
+  /**
+   * Repositories synced at once from the same host by {@link #syncRepos(List, Consumer)}
+   */
+  private static volatile int syncPerHost = 4;
+
+  /**
+   * Repositories synced at once overall by {@link #syncRepos(List, Consumer)}
+   */
+  private static volatile int syncTotal = 16;
+
+  /**
+   * Keeps a bare mirror of every repository cloned by the clean clone methods. Clean clones then
+   * only fetch what's new since the last clone of the repository, and check it out from the local
+   * mirror.
+   *
+   * @param dir Directory to keep the mirrors in, null to clone straight from the remote
+   */
+  public static void setMirrorCache(File dir) {
+    mirrors = dir == null ? null : new MirrorCache(dir);
+  }
+
+  /**
+   * Keeps the objects of all repositories cloned by the clean clone methods in one shared pool.
+   * Clones reference the pool through git alternates instead of storing their own objects, and
+   * forks of the same project only fetch and store their own commits. Takes precedence over the
+   * mirror cache. Clones must be deleted before the pool.
+   *
+   * @param dir Directory of the pool, null to give every clone its own objects
+   */
+  public static void setObjectPool(File dir) {
+    pool = dir == null ? null : new ObjectPool(dir);
+  }
+
+  /**
+   * Removes objects from the pool that neither a repository nor an existing clone uses anymore.
+   * Safe to call while clones are in use, fetches and clones through the pool wait until it's
+   * done.
+   *
+   * @return Whether or not garbage was collected, false if no pool is set or it failed
+   */
+  public static boolean gcObjectPool() {
+    ObjectPool pool = VCS.pool;
+    if (pool == null) {
+      return false;
+    }
+    try {
+      pool.gc();
+      return true;
+    } catch (IOException | GitAPIException e) {
+      e.printStackTrace();
+    }
+    return false;
+  }
+
+  /**
+   * Limits how many repositories {@link #syncRepos(List, Consumer)} syncs at once. Defaults to 4
+   * per host and 16 overall.
+   *
+   * @param perHost Repositories synced at once from the same host
+   * @param total   Repositories synced at once overall
+   */
+  public static void setSyncLimits(int perHost, int total) {
+    syncPerHost = perHost;
+    syncTotal = total;
+  }
+
+  /**
+   * Syncs many repositories into their workspaces concurrently. Existing clones are fetched and
+   * reset, everything else is cloned. Transient failures are retried with backoff. Uses the mirror
+   * cache, if one is set.
+   *
+   * @param targets  Repositories and their workspaces
+   * @param progress Receives the result of every repository as soon as it's done, can be null
+   * @return Results in the order of the targets
+   */
+  public static List<SyncResult> syncRepos(List<SyncTarget> targets,
+      Consumer<SyncResult> progress) {
+    try (RepositorySync sync = new RepositorySync(syncPerHost, syncTotal)) {
+      return sync.withMirrorCache(mirrors).withObjectPool(pool).sync(targets, progress).join();
+    }
+  }
+
   /**
    * Cleanly clones a git repository by deleting the repository folder if it already exists.
    *
    * @param url HTTP(S) url to clone. Should end with .git
    * @param dir Directory to clone repository to
+   * @return Whether or not the repository was cloned
+   */
+  public static boolean cleanCloneRepo(String url, File dir) {
+    return cleanCloneRepo(url, dir, new CloneOptions());
+  }
+
+  /**
+   * Cleanly clones a git repository by deleting the repository folder if it already exists.
+   *
+   * @param url     HTTP(S) url to clone. Should end with .git
+   * @param dir     Directory to clone repository to
+   * @param options Branch, commit and paths to clone
+   * @return Whether or not the repository was cloned
    */
-  public static void cleanCloneRepo(String url, File dir) {
+  public static boolean cleanCloneRepo(String url, File dir, CloneOptions options) {
     cleanDirectory(dir);
-    cloneRepo(url, dir);
+    ObjectPool pool = VCS.pool;
+    MirrorCache mirrors = VCS.mirrors;
+    if (pool != null) {
+      return cloneFromPool(pool, url, dir, null, options);
+    } else if (mirrors != null) {
+      return cloneFromMirror(mirrors, url, dir, null, options);
+    } else {
+      return cloneRepo(url, dir, options);
+    }
+  }
+
+  /**
+   * Cleanly clones a git repository by deleting the repository folder if it already exists. Uses
+   * username/password authentication to authenticate.
+   *
+   * @param url      HTTP(S) url to clone. Should end with .git
+   * @param dir      Directory to clone repository to
+   * @param username Username to use for authentication
+   * @param password Password to use for authentication
+   * @return Whether or not the repository was cloned
+   */
+  public static boolean cleanCloneAuthedRepo(String url, File dir, String username,
+      String password) {
+    return cleanCloneAuthedRepo(url, dir, username, password, new CloneOptions());
   }
 
   /**
@@ -28,10 +174,23 @@ public class VCS {
    * @param dir      Directory to clone repository to
    * @param username Username to use for authentication
    * @param password Password to use for authentication
+   * @param options  Branch, commit and paths to clone
+   * @return Whether or not the repository was cloned
    */
-  public static void cleanCloneAuthedRepo(String url, File dir, String username, String password) {
+  public static boolean cleanCloneAuthedRepo(String url, File dir, String username,
+      String password, CloneOptions options) {
     cleanDirectory(dir);
-    cloneAuthedRepo(url, dir, username, password);
+    ObjectPool pool = VCS.pool;
+    MirrorCache mirrors = VCS.mirrors;
+    if (pool != null) {
+      return cloneFromPool(pool, url, dir,
+          new UsernamePasswordCredentialsProvider(username, password), options);
+    } else if (mirrors != null) {
+      return cloneFromMirror(mirrors, url, dir,
+          new UsernamePasswordCredentialsProvider(username, password), options);
+    } else {
+      return cloneAuthedRepo(url, dir, username, password, options);
+    }
   }
 
   /**
@@ -39,61 +198,193 @@ public class VCS {
    *
    * @param url HTTP(S) url to clone. Should end with .git
    * @param dir Directory to clone repository to
+   * @return Whether or not the repository was cloned
    */
-  public static void cloneRepo(String url, File dir) {
+  public static boolean cloneRepo(String url, File dir) {
+    return cloneRepo(url, dir, new CloneOptions());
+  }
+
+  /**
+   * Clones a git repository over HTTP(S), only transferring and checking out what the options ask
+   * for.
+   *
+   * @param url     HTTP(S) url to clone. Should end with .git
+   * @param dir     Directory to clone repository to
+   * @param options Branch, commit and paths to clone
+   * @return Whether or not the repository was cloned
+   */
+  public static boolean cloneRepo(String url, File dir, CloneOptions options) {
+    return clone(url, dir, null, options);
+  }
+
+  /**
+   * Clones a git repository over HTTP(S) using username and password authentication.
+   *
+   * @param url      HTTP(S) url to clone. Should end with .git
+   * @param dir      Directory to clone repository to
+   * @param username Username to use for authentication
+   * @param password Password to use for authentication
+   * @return Whether or not the repository was cloned
+   */
+  public static boolean cloneAuthedRepo(String url, File dir, String username, String password) {
+    return cloneAuthedRepo(url, dir, username, password, new CloneOptions());
+  }
+
+  /**
+   * Clones a git repository over HTTP(S) using username and password authentication, only
+   * transferring and checking out what the options ask for.
+   *
+   * @param url      HTTP(S) url to clone. Should end with .git
+   * @param dir      Directory to clone repository to
+   * @param username Username to use for authentication
+   * @param password Password to use for authentication
+   * @param options  Branch, commit and paths to clone
+   * @return Whether or not the repository was cloned
+   */
+  public static boolean cloneAuthedRepo(String url, File dir, String username, String password,
+      CloneOptions options) {
+    return clone(url, dir, new UsernamePasswordCredentialsProvider(username, password), options);
+  }
+
+  private static boolean clone(String url, File dir, CredentialsProvider credentials,
+      CloneOptions options) {
     if (!dir.exists()) {
       dir.mkdirs();
     }
     try {
-      Git git = Git.cloneRepository()
-          .setURI(url)
-          .setDirectory(dir)
-          .call();
+      Cloner.clone(url, dir, credentials, options);
+      return true;
+    } catch (IOException | GitAPIException e) {
+      e.printStackTrace();
+    }
+    return false;
+  }
+
+  /**
+   * Clones a git repository through its mirror, see {@link #setMirrorCache(File)}.
+   *
+   * @param mirrors     Cache of the mirror
+   * @param url         HTTP(S) url to clone. Should end with .git
+   * @param dir         Directory to clone repository to
+   * @param credentials Credentials to authenticate with, null if the repository is public
+   * @param options     Branch, commit and paths to clone
+   * @return Whether or not the repository was cloned
+   */
+  private static boolean cloneFromMirror(MirrorCache mirrors, String url, File dir,
+      CredentialsProvider credentials, CloneOptions options) {
+    try {
+      mirrors.checkout(url, dir, credentials, options);
+      return true;
+    } catch (IOException | GitAPIException e) {
+      e.printStackTrace();
+    }
+    return false;
+  }
+
+  /**
+   * Clones a git repository through the object pool, see {@link #setObjectPool(File)}.
+   *
+   * @param pool        Pool of the objects
+   * @param url         HTTP(S) url to clone. Should end with .git
+   * @param dir         Directory to clone repository to
+   * @param credentials Credentials to authenticate with, null if the repository is public
+   * @param options     Branch, commit and paths to clone
+   * @return Whether or not the repository was cloned
+   */
+  private static boolean cloneFromPool(ObjectPool pool, String url, File dir,
+      CredentialsProvider credentials, CloneOptions options) {
+    try {
+      pool.checkout(url, dir, credentials, options);
+      return true;
+    } catch (IOException | GitAPIException e) {
+      e.printStackTrace();
+    }
+    return false;
+  }
+
+  /**
+   * Looks up the commit a branch of a repository points to, without cloning it. To check many
+   * repositories for changes at once, see {@link ChangeDetector}.
+   *
+   * @param url    HTTP(S) url of the repository. Should end with .git
+   * @param branch Name of the branch, like "main", null for the default branch
+   * @return Hash of the commit, or null if the branch doesn't exist or the refs couldn't be listed
+   */
+  public static String getRemoteCommit(String url, String branch) {
+    try {
+      return ChangeDetector.getRemoteCommit(url, branch, null);
     } catch (GitAPIException e) {
       e.printStackTrace();
     }
+    return null;
   }
 
   /**
-   * Clones a git repository over HTTP(S) using username and password authentication.
+   * Looks up the commit a branch of a repository points to, without cloning it. Uses
+   * username/password authentication to authenticate.
    *
-   * @param url      HTTP(S) url to clone. Should end with .git
-   * @param dir      Directory to clone repository to
+   * @param url      HTTP(S) url of the repository. Should end with .git
+   * @param branch   Name of the branch, like "main", null for the default branch
    * @param username Username to use for authentication
    * @param password Password to use for authentication
+   * @return Hash of the commit, or null if the branch doesn't exist or the refs couldn't be listed
    */
-  public static void cloneAuthedRepo(String url, File dir, String username, String password) {
-    if (!dir.exists()) {
-      dir.mkdirs();
-    }
+  public static String getAuthedRemoteCommit(String url, String branch, String username,
+      String password) {
     try {
-      Git git = Git.cloneRepository()
-          .setCredentialsProvider(new UsernamePasswordCredentialsProvider(username, password))
-          .setURI(url)
-          .setDirectory(dir)
-          .call();
+      return ChangeDetector.getRemoteCommit(url, branch,
+          new UsernamePasswordCredentialsProvider(username, password));
     } catch (GitAPIException e) {
       e.printStackTrace();
     }
+    return null;
   }
 
   /**
-   * Fully deletes a directory, if it exists.
+   * Looks up the hash of the tree checked out in a repository. The tree hash identifies the exact
+   * contents of a commit, which makes it a good cache key for build artifacts. Sparse checkouts
+   * are identified by their paths and the hashes of only those subtrees, so they never share a
+   * key with a full checkout, or with a checkout of other paths.
    *
-   * @param dir Directory to delete
+   * @param dir Directory of the cloned repository
+   * @return Hash of the tree of the HEAD commit, or of the checked out paths, or null if it
+   * couldn't be resolved
    */
-  private static void cleanDirectory(File dir) {
-    if (dir.exists()) {
-      if (!dir.isDirectory()) {
-        dir.delete();
-      } else {
-        try {
-          FileUtils.deleteDirectory(dir);
-        } catch (IOException e) {
-          e.printStackTrace();
+  public static String getTreeHash(File dir) {
+    try (Git git = Git.open(dir)) {
+      Repository repository = git.getRepository();
+      List<String> paths = new ArrayList<>(Cloner.getSparsePaths(repository));
+      if (paths.isEmpty()) {
+        ObjectId tree = repository.resolve("HEAD^{tree}");
+        return tree == null ? null : tree.name();
+      }
+      Collections.sort(paths);
+      StringBuilder listing = new StringBuilder();
+      for (String path : paths) {
+        ObjectId id = repository.resolve(path.isEmpty() ? "HEAD^{tree}" : "HEAD:" + path);
+        if (id == null && repository.resolve(Constants.HEAD) == null) {
+          return null;
         }
+        //paths that don't exist in the commit are part of the key as well
+        listing.append(path).append('\t')
+            .append((id == null ? ObjectId.zeroId() : id).name()).append('\n');
       }
+      return new ObjectInserter.Formatter()
+          .idFor(Constants.OBJ_BLOB, listing.toString().getBytes(StandardCharsets.UTF_8)).name();
+    } catch (IOException e) {
+      e.printStackTrace();
     }
+    return null;
+  }
+
+  /**
+   * Removes a directory, if it exists. The directory is moved out of the way right away and
+   * deleted in the background, see {@link WorkspaceManager}.
+   *
+   * @param dir Directory to remove
+   */
+  private static void cleanDirectory(File dir) {
+    WorkspaceManager.getDefault().clean(dir);
   }
 
 }
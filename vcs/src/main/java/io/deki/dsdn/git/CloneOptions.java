@@ -0,0 +1,96 @@
+package io.deki.dsdn.git;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Narrows down what a clone transfers and checks out. By default every branch and tag is cloned
+ * and the default branch is checked out completely.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class CloneOptions {
+
+  /**
+   * Only branch that is cloned and checked out, null for all branches
+   */
+  private String branch;
+
+  /**
+   * Commit to check out instead of the tip of the branch, null for the tip
+   */
+  private String commit;
+
+  /**
+   * Files and directories to check out, empty for the whole tree
+   */
+  private final List<String> paths = new ArrayList<>();
+
+  private boolean tags = true;
+
+  /**
+   * Clones only a single branch and checks it out.
+   *
+   * @param branch Name of the branch, like "main"
+   * @return These options
+   */
+  public CloneOptions withBranch(String branch) {
+    this.branch = branch;
+    return this;
+  }
+
+  /**
+   * Checks out a specific commit, detached from any branch. The commit has to be reachable from
+   * the cloned branches.
+   *
+   * @param commit Hash of the commit, can be abbreviated
+   * @return These options
+   */
+  public CloneOptions withCommit(String commit) {
+    this.commit = commit;
+    return this;
+  }
+
+  /**
+   * Checks out only some files and directories of the tree, like "src/" and "pom.xml".
+   *
+   * @param paths Paths relative to the root of the repository
+   * @return These options
+   */
+  public CloneOptions withPaths(String... paths) {
+    for (String path : Arrays.asList(paths)) {
+      this.paths.add(path.replaceAll("^/+|/+$", ""));
+    }
+    return this;
+  }
+
+  /**
+   * Doesn't fetch tags or the objects only they refer to.
+   *
+   * @return These options
+   */
+  public CloneOptions withoutTags() {
+    this.tags = false;
+    return this;
+  }
+
+  public String getBranch() {
+    return branch;
+  }
+
+  public String getCommit() {
+    return commit;
+  }
+
+  public List<String> getPaths() {
+    return Collections.unmodifiableList(paths);
+  }
+
+  public boolean isTags() {
+    return tags;
+  }
+
+}
@@ -0,0 +1,198 @@
+package io.deki.dsdn.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jgit.api.CheckoutCommand;
+import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.CredentialsProvider;
+
+/**
+ * Clones repositories with {@link CloneOptions}. Clones of a specific commit or of some paths are
+ * cloned without a checkout, the commit is checked out afterwards, either completely or only the
+ * requested paths.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class Cloner {
+
+  /**
+   * Config section and key recording the paths of a sparse checkout in the cloned repository
+   */
+  private static final String SPARSE_SECTION = "dsdn";
+  private static final String SPARSE_KEY = "path";
+
+  /**
+   * Clones a repository.
+   *
+   * @param uri         URI of the repository, a remote or a local mirror
+   * @param dir         Directory to clone to
+   * @param credentials Credentials for the remote, null if the repository is public
+   * @param options     What to clone and check out
+   * @throws IOException     If the commit doesn't exist or can't be checked out
+   * @throws GitAPIException If cloning failed
+   */
+  public static void clone(String uri, File dir, CredentialsProvider credentials,
+      CloneOptions options) throws IOException, GitAPIException {
+    //plain clones are checked out by jgit, everything else is checked out afterwards
+    boolean plain = options.getCommit() == null && options.getPaths().isEmpty();
+    CloneCommand clone = Git.cloneRepository()
+        .setURI(uri)
+        .setDirectory(dir)
+        .setCredentialsProvider(credentials)
+        .setNoCheckout(!plain);
+    if (options.getBranch() != null) {
+      clone.setBranch(options.getBranch());
+      clone.setBranchesToClone(
+          Collections.singletonList(Constants.R_HEADS + options.getBranch()));
+    }
+    if (!options.isTags()) {
+      clone.setNoTags();
+    }
+    try (Git git = clone.call()) {
+      if (plain) {
+        return;
+      }
+      String branch = options.getBranch();
+      if (branch == null && options.getCommit() == null) {
+        branch = getDefaultBranch(uri, credentials);
+      }
+      checkout(git, options, branch);
+    }
+  }
+
+  /**
+   * Checks out the requested commit, or the tip of a branch, in a repository that has been
+   * fetched but not checked out yet.
+   *
+   * @param git     Repository with the commits of the remote in refs/remotes/origin
+   * @param options Commit and paths to check out
+   * @param branch  Branch to check out and track if no commit is requested
+   * @throws IOException     If the commit or branch doesn't exist or can't be checked out
+   * @throws GitAPIException If checking out failed
+   */
+  static void checkout(Git git, CloneOptions options, String branch)
+      throws IOException, GitAPIException {
+    Repository repository = git.getRepository();
+    ObjectId id;
+    if (options.getCommit() != null) {
+      id = repository.resolve(options.getCommit() + "^{commit}");
+      if (id == null) {
+        throw new IOException("Commit " + options.getCommit() + " not found");
+      }
+      RefUpdate head = repository.updateRef(Constants.HEAD, true);
+      head.setNewObjectId(id);
+      head.forceUpdate();
+    } else {
+      id = branch == null ? null : repository.resolve(Constants.R_REMOTES + "origin/" + branch);
+      if (id == null) {
+        throw new IOException("Branch " + branch + " not found");
+      }
+      createBranch(repository, branch, id);
+    }
+    if (options.getPaths().isEmpty()) {
+      checkoutAll(repository, id);
+    } else {
+      CheckoutCommand checkout = git.checkout().setStartPoint(id.name());
+      options.getPaths().forEach(checkout::addPath);
+      checkout.call();
+      StoredConfig config = repository.getConfig();
+      config.setStringList(SPARSE_SECTION, null, SPARSE_KEY, options.getPaths());
+      config.save();
+    }
+  }
+
+  /**
+   * @param repository Cloned repository
+   * @return Paths that were checked out, empty if the whole tree was checked out
+   */
+  public static List<String> getSparsePaths(Repository repository) {
+    return Arrays.asList(repository.getConfig().getStringList(SPARSE_SECTION, null, SPARSE_KEY));
+  }
+
+  /**
+   * Finds the branch the HEAD of a remote points to.
+   *
+   * @param head HEAD advertised by the remote
+   * @param refs All refs advertised by the remote
+   * @return Full name of the default branch, like refs/heads/main, or null if HEAD is detached
+   */
+  static String getDefaultBranch(Ref head, Collection<Ref> refs) {
+    if (head.isSymbolic()) {
+      return head.getTarget().getName();
+    }
+    //servers that don't advertise the symbolic ref, pick a branch on the same commit
+    String target = null;
+    for (Ref ref : refs) {
+      if (ref.getName().startsWith(Constants.R_HEADS) && head.getObjectId() != null
+          && head.getObjectId().equals(ref.getObjectId())
+          && (target == null || ref.getName().endsWith("/main")
+          || ref.getName().endsWith("/master"))) {
+        target = ref.getName();
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Asks the remote for its default branch.
+   *
+   * @return Short name of the branch, like main, or null if HEAD of the remote is detached
+   */
+  private static String getDefaultBranch(String uri, CredentialsProvider credentials)
+      throws GitAPIException {
+    Map<String, Ref> refs = Git.lsRemoteRepository()
+        .setRemote(uri)
+        .setCredentialsProvider(credentials)
+        .callAsMap();
+    Ref head = refs.get(Constants.HEAD);
+    String branch = head == null ? null : getDefaultBranch(head, refs.values());
+    return branch == null ? null : Repository.shortenRefName(branch);
+  }
+
+  /**
+   * Creates a local branch tracking the remote branch and points HEAD to it, like a regular clone
+   * does.
+   */
+  private static void createBranch(Repository repository, String branch, ObjectId id)
+      throws IOException {
+    RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+    update.setNewObjectId(id);
+    update.forceUpdate();
+    repository.updateRef(Constants.HEAD).link(Constants.R_HEADS + branch);
+    StoredConfig config = repository.getConfig();
+    config.setString("branch", branch, "remote", "origin");
+    config.setString("branch", branch, "merge", Constants.R_HEADS + branch);
+    config.save();
+  }
+
+  /**
+   * Checks out the whole tree of a commit into the empty working directory of a new clone.
+   */
+  private static void checkoutAll(Repository repository, ObjectId id) throws IOException {
+    try (RevWalk walk = new RevWalk(repository)) {
+      RevCommit commit = walk.parseCommit(id);
+      DirCacheCheckout checkout =
+          new DirCacheCheckout(repository, repository.lockDirCache(), commit.getTree());
+      checkout.setFailOnConflict(true);
+      checkout.checkout();
+    }
+  }
+
+}
@@ -0,0 +1,230 @@
+package io.deki.dsdn.git;
+
+import io.deki.dsdn.workspace.WorkspaceManager;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.FetchResult;
+
+/**
+ * Keeps a bare mirror of every repository that is checked out, so a checkout only fetches the
+ * objects that are new since the last one. Workspaces are cloned from the mirror on the local disk
+ * and point to the original remote afterwards, they share nothing with the mirror.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class MirrorCache {
+
+  /**
+   * Branches and tags of the remote, other refs like merge requests aren't mirrored
+   */
+  private static final String[] REF_SPECS =
+      {"+refs/heads/*:refs/heads/*", "+refs/tags/*:refs/tags/*"};
+
+  /**
+   * Directory containing the mirrors
+   */
+  private final File dir;
+
+  /**
+   * Lock per mirror. Clones and fetches from a mirror share it, rebuilding a mirror takes it
+   * exclusively. Fetches into the same mirror run one at a time by synchronizing on it.
+   */
+  private final ConcurrentMap<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
+
+  public MirrorCache(File dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Updates the mirror of a repository and clones it from the mirror into a fresh workspace.
+   *
+   * @param url         HTTP(S) url of the repository
+   * @param workspace   Directory to clone to, must not exist or be empty
+   * @param credentials Credentials for the remote, null if the repository is public
+   * @param options     What to clone from the mirror and check out
+   * @throws IOException     If the mirror or the workspace can't be written
+   * @throws GitAPIException If fetching or cloning failed
+   */
+  public void checkout(String url, File workspace, CredentialsProvider credentials,
+      CloneOptions options) throws IOException, GitAPIException {
+    read(url, credentials, mirror -> {
+      Cloner.clone(mirror.toURI().toString(), workspace, null, options);
+      return null;
+    });
+    try (Git git = Git.open(workspace)) {
+      StoredConfig config = git.getRepository().getConfig();
+      config.setString("remote", "origin", "url", url);
+      config.save();
+    }
+  }
+
+  /**
+   * Updates the mirror of a repository and reads from it, like cloning or fetching from it. The
+   * mirror isn't rebuilt while it's being read.
+   *
+   * @param url         HTTP(S) url of the repository
+   * @param credentials Credentials for the remote, null if the repository is public
+   * @param reader      Reads from the directory of the bare mirror
+   * @return Result of the reader
+   * @throws IOException     If the mirror can't be written, or the reader failed
+   * @throws GitAPIException If fetching failed, or the reader failed
+   */
+  public <T> T read(String url, CredentialsProvider credentials, MirrorReader<T> reader)
+      throws IOException, GitAPIException {
+    File mirror = sync(url, credentials);
+    Lock lock = getLock(url).readLock();
+    lock.lock();
+    try {
+      return reader.read(mirror);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Creates or updates the mirror of a repository. A mirror that can't be updated for other
+   * reasons than the network is created from scratch, once nobody reads from it anymore.
+   *
+   * @param url         HTTP(S) url of the repository
+   * @param credentials Credentials for the remote, null if the repository is public
+   * @return Directory of the bare mirror
+   * @throws IOException     If the mirror can't be written
+   * @throws GitAPIException If fetching failed
+   */
+  public File sync(String url, CredentialsProvider credentials)
+      throws IOException, GitAPIException {
+    File mirror = getMirror(url);
+    ReadWriteLock lock = getLock(url);
+    synchronized (lock) {
+      Exception failure;
+      lock.readLock().lock();
+      try {
+        //fetching only adds objects, clones from the mirror can go on meanwhile
+        fetch(url, mirror, credentials);
+        return mirror;
+      } catch (TransportException e) {
+        throw e;
+      } catch (IOException | GitAPIException | RuntimeException e) {
+        if (!mirror.exists()) {
+          throw e;
+        }
+        failure = e;
+      } finally {
+        lock.readLock().unlock();
+      }
+      failure.printStackTrace();
+      lock.writeLock().lock();
+      try {
+        WorkspaceManager.getDefault().clean(mirror);
+        fetch(url, mirror, credentials);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+    return mirror;
+  }
+
+  /**
+   * @param url HTTP(S) url of the repository
+   * @return Directory of the mirror of the repository, whether or not it exists
+   */
+  public File getMirror(String url) {
+    return new File(dir, getKey(url) + ".git");
+  }
+
+  /**
+   * @param url HTTP(S) url of the repository
+   * @return Name of the repository followed by a hash of its url, unique per url and safe to use
+   * in file and ref names
+   */
+  static String getKey(String url) {
+    String name = url.replaceAll("/+$", "");
+    name = name.substring(name.lastIndexOf('/') + 1).replaceAll("\\.git$", "");
+    return name.replaceAll("[^\\w.-]", "_") + "-" + hash(url);
+  }
+
+  private ReadWriteLock getLock(String url) {
+    return locks.computeIfAbsent(url, key -> new ReentrantReadWriteLock());
+  }
+
+  private static void fetch(String url, File mirror, CredentialsProvider credentials)
+      throws IOException, GitAPIException {
+    if (!mirror.exists()) {
+      Git.init().setBare(true).setGitDir(mirror).call().close();
+    }
+    try (Git git = Git.open(mirror)) {
+      StoredConfig config = git.getRepository().getConfig();
+      config.setString("remote", "origin", "url", url);
+      config.save();
+      FetchResult result = git.fetch()
+          .setRemote("origin")
+          .setRefSpecs(REF_SPECS)
+          .setRemoveDeletedRefs(true)
+          .setCredentialsProvider(credentials)
+          .call();
+      linkHead(git.getRepository(), result);
+    }
+  }
+
+  /**
+   * Points HEAD of the mirror to the default branch of the remote, which workspaces check out when
+   * no ref is given.
+   */
+  private static void linkHead(Repository repository, FetchResult result) throws IOException {
+    Ref head = result.getAdvertisedRef(Constants.HEAD);
+    if (head == null) {
+      return;
+    }
+    String target = Cloner.getDefaultBranch(head, result.getAdvertisedRefs());
+    if (target != null && repository.exactRef(target) != null) {
+      repository.updateRef(Constants.HEAD).link(target);
+    }
+  }
+
+  private static String hash(String url) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(url.getBytes(StandardCharsets.UTF_8));
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 6; i++) {
+        builder.append(String.format("%02x", digest[i]));
+      }
+      return builder.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Reads from a mirror, see {@link #read(String, CredentialsProvider, MirrorReader)}.
+   */
+  public interface MirrorReader<T> {
+
+    /**
+     * @param mirror Directory of the bare mirror
+     * @return Result of the reader
+     * @throws IOException     If reading failed
+     * @throws GitAPIException If a git command failed
+     */
+    T read(File mirror) throws IOException, GitAPIException;
+
+  }
+
+}
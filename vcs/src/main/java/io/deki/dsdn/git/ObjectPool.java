@@ -0,0 +1,392 @@
+package io.deki.dsdn.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.TagOpt;
+
+/**
+ * A single bare repository that holds the objects of every repository checked out through it.
+ * Forks of the same project share most of their objects, which the pool stores and fetches only
+ * once. Workspaces don't get a copy of the objects, they reference the pool through git
+ * alternates.
+ *
+ * <p>Every repository is fetched into its own namespace of refs, refs/repos/&lt;key&gt;/heads and
+ * refs/repos/&lt;key&gt;/tags, which keeps its objects alive in the pool. Workspaces must not
+ * outlive the pool, and the pool must only be garbage collected through {@link #gc()}, which keeps
+ * the objects the registered workspaces still use.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class ObjectPool {
+
+  private static final String PREFIX = "refs/repos/";
+
+  /**
+   * Refs keeping the commits of workspaces alive during garbage collection
+   */
+  private static final String PINS = "refs/pins/";
+
+  /**
+   * Objects that are younger are never pruned, they may belong to a fetch that is still running
+   * in another process
+   */
+  private static final long PRUNE_EXPIRY = TimeUnit.HOURS.toMillis(1);
+
+  private final File dir;
+
+  /**
+   * File listing the git directories of all workspaces that reference the pool
+   */
+  private final File clonesFile;
+
+  /**
+   * Fetches and checkouts share the pool, garbage collection needs it exclusively
+   */
+  private final ReadWriteLock gcLock = new ReentrantReadWriteLock();
+
+  /**
+   * Fetches of the same repository run one at a time
+   */
+  private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+  /**
+   * @param dir Directory of the bare pool repository, created on first use
+   */
+  public ObjectPool(File dir) {
+    this.dir = dir;
+    this.clonesFile = new File(dir, "dsdn-clones");
+  }
+
+  /**
+   * Fetches new objects of a repository into the pool and creates a workspace that references
+   * them. Only objects that aren't in the pool yet, from this repository or any of its forks, are
+   * transferred.
+   *
+   * @param url         HTTP(S) url of the repository
+   * @param workspace   Directory to check out to, must not exist or be empty
+   * @param credentials Credentials for the remote, null if the repository is public
+   * @param options     What to check out
+   * @throws IOException     If the pool or the workspace can't be written
+   * @throws GitAPIException If fetching or checking out failed
+   */
+  public void checkout(String url, File workspace, CredentialsProvider credentials,
+      CloneOptions options) throws IOException, GitAPIException {
+    gcLock.readLock().lock();
+    try {
+      String defaultBranch = sync(url, credentials);
+      Git.init().setDirectory(workspace).call().close();
+      File gitDir = new File(workspace, Constants.DOT_GIT);
+      Path alternates = new File(gitDir, "objects/info/alternates").toPath();
+      Files.createDirectories(alternates.getParent());
+      Files.write(alternates, (getObjectsDirectory().getAbsolutePath() + "\n")
+          .getBytes(StandardCharsets.UTF_8));
+      register(gitDir);
+      try (Git git = Git.open(workspace)) {
+        StoredConfig config = git.getRepository().getConfig();
+        config.setString("remote", "origin", "url", url);
+        config.setString("remote", "origin", "fetch",
+            "+" + Constants.R_HEADS + "*:" + Constants.R_REMOTES + "origin/*");
+        config.save();
+        fetch(git, url, options);
+        String branch = options.getBranch() != null ? options.getBranch() : defaultBranch;
+        Cloner.checkout(git, options, branch);
+      }
+    } finally {
+      gcLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Fetches new objects of a repository into the pool and then into an existing workspace of the
+   * repository, into refs/remotes/origin and refs/tags. Nothing is checked out.
+   *
+   * @param git         Workspace referencing the pool
+   * @param url         HTTP(S) url of the repository
+   * @param credentials Credentials for the remote, null if the repository is public
+   * @param options     Branch and tags to fetch
+   * @throws IOException     If the pool or the workspace can't be written
+   * @throws GitAPIException If fetching failed
+   */
+  public void fetch(Git git, String url, CredentialsProvider credentials, CloneOptions options)
+      throws IOException, GitAPIException {
+    gcLock.readLock().lock();
+    try {
+      sync(url, credentials);
+      fetch(git, url, options);
+    } finally {
+      gcLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Fetches a repository into its namespace in the pool.
+   *
+   * @return Short name of the default branch of the repository, null if it has none
+   */
+  private String sync(String url, CredentialsProvider credentials)
+      throws IOException, GitAPIException {
+    String namespace = getNamespace(url);
+    synchronized (locks.computeIfAbsent(url, key -> new Object())) {
+      synchronized (this) {
+        if (!new File(dir, "objects").isDirectory()) {
+          Git.init().setBare(true).setGitDir(dir).call().close();
+        }
+      }
+      try (Git pool = Git.open(dir)) {
+        //haves of all repositories are advertised, so objects of forks aren't transferred again
+        FetchResult result = pool.fetch()
+            .setRemote(url)
+            .setRefSpecs("+" + Constants.R_HEADS + "*:" + namespace + "heads/*",
+                "+" + Constants.R_TAGS + "*:" + namespace + "tags/*")
+            .setTagOpt(TagOpt.NO_TAGS)
+            .setRemoveDeletedRefs(true)
+            .setCredentialsProvider(credentials)
+            .call();
+        Repository repository = pool.getRepository();
+        Ref head = result.getAdvertisedRef(Constants.HEAD);
+        String target = head == null
+            ? null : Cloner.getDefaultBranch(head, result.getAdvertisedRefs());
+        if (target != null) {
+          String ref = namespace + "heads/" + Repository.shortenRefName(target);
+          if (repository.exactRef(ref) != null) {
+            repository.updateRef(namespace + Constants.HEAD).link(ref);
+          }
+        }
+        Ref defaultBranch = repository.exactRef(namespace + Constants.HEAD);
+        if (defaultBranch == null || !defaultBranch.isSymbolic()) {
+          return null;
+        }
+        return defaultBranch.getTarget().getName().substring((namespace + "heads/").length());
+      }
+    }
+  }
+
+  /**
+   * Fetches the namespace of a repository from the pool into a workspace. All objects are in the
+   * pool already, so only refs are written.
+   */
+  private void fetch(Git git, String url, CloneOptions options) throws GitAPIException {
+    String namespace = getNamespace(url);
+    String branches = options.getBranch() == null ? "*" : options.getBranch();
+    List<String> refSpecs = new ArrayList<>();
+    refSpecs.add("+" + namespace + "heads/" + branches + ":"
+        + Constants.R_REMOTES + "origin/" + branches);
+    if (options.isTags()) {
+      refSpecs.add("+" + namespace + "tags/*:" + Constants.R_TAGS + "*");
+    }
+    git.fetch()
+        .setRemote(dir.toURI().toString())
+        .setRefSpecs(refSpecs.toArray(new String[0]))
+        .setTagOpt(TagOpt.NO_TAGS)
+        .setRemoveDeletedRefs(true)
+        .call();
+  }
+
+  /**
+   * Collects garbage in the pool, like objects of deleted branches. Objects that registered
+   * workspaces still reference, through any of their refs or HEAD, are kept. Workspaces that no
+   * longer exist or no longer reference the pool are unregistered. Waits for running fetches and
+   * checkouts through this pool, and holds back new ones until it's done.
+   *
+   * @throws IOException     If the pool can't be read or written
+   * @throws GitAPIException If garbage collection failed
+   */
+  public void gc() throws IOException, GitAPIException {
+    gcLock.writeLock().lock();
+    try (Git pool = Git.open(dir)) {
+      Repository repository = pool.getRepository();
+      for (Ref ref : repository.getRefDatabase().getRefsByPrefix(PINS)) {
+        RefUpdate delete = repository.updateRef(ref.getName());
+        delete.setForceUpdate(true);
+        delete.delete();
+      }
+      int pins = 0;
+      //other processes sharing the pool don't register clones while they're being pinned
+      synchronized (this) {
+        FileLock lock = lockClones();
+        try {
+          Set<String> alive = new LinkedHashSet<>();
+          for (String clone : readClones()) {
+            if (!referencesPool(new File(clone))) {
+              continue;
+            }
+            alive.add(clone);
+            try (Git git = Git.open(new File(clone))) {
+              Repository workspace = git.getRepository();
+              Set<ObjectId> ids = new LinkedHashSet<>();
+              for (Ref ref : workspace.getRefDatabase().getRefs()) {
+                if (ref.getObjectId() != null) {
+                  ids.add(ref.getObjectId());
+                }
+              }
+              ObjectId head = workspace.resolve(Constants.HEAD);
+              if (head != null) {
+                ids.add(head);
+              }
+              for (ObjectId id : findPooled(workspace, repository, ids)) {
+                RefUpdate pin = repository.updateRef(PINS + pins++);
+                pin.setNewObjectId(id);
+                pin.forceUpdate();
+              }
+            }
+          }
+          writeClones(alive);
+        } finally {
+          lock.release();
+          lock.channel().close();
+        }
+      }
+      pool.gc().setExpire(new Date(System.currentTimeMillis() - PRUNE_EXPIRY)).call();
+    } finally {
+      gcLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return Objects directory of the pool, which workspaces reference
+   */
+  public File getObjectsDirectory() {
+    return new File(dir, "objects");
+  }
+
+  private boolean referencesPool(File gitDir) {
+    File alternates = new File(gitDir, "objects/info/alternates");
+    if (!alternates.isFile()) {
+      return false;
+    }
+    try {
+      String pool = getObjectsDirectory().getAbsolutePath();
+      return Files.readAllLines(alternates.toPath(), StandardCharsets.UTF_8).stream()
+          .anyMatch(line -> line.trim().equals(pool));
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Finds the objects of a workspace that the pool has to keep. Local commits of the workspace
+   * aren't in the pool, their closest ancestors that are in the pool are kept instead, along with
+   * everything they reference.
+   *
+   * @param workspace Workspace referencing the pool
+   * @param pool      Repository of the pool
+   * @param ids       Objects the refs of the workspace point to
+   * @return Objects in the pool that keep everything the workspace uses alive
+   */
+  private static Set<ObjectId> findPooled(Repository workspace, Repository pool,
+      Set<ObjectId> ids) throws IOException {
+    Set<ObjectId> pooled = new LinkedHashSet<>();
+    Set<ObjectId> seen = new HashSet<>();
+    Deque<ObjectId> pending = new ArrayDeque<>(ids);
+    try (RevWalk walk = new RevWalk(workspace)) {
+      while (!pending.isEmpty()) {
+        ObjectId id = pending.pop();
+        if (!seen.add(id)) {
+          continue;
+        }
+        if (pool.getObjectDatabase().has(id)) {
+          pooled.add(id);
+          continue;
+        }
+        RevObject object = walk.parseAny(id);
+        if (object instanceof RevTag) {
+          pending.push(((RevTag) object).getObject());
+        } else if (object instanceof RevCommit) {
+          for (RevCommit parent : ((RevCommit) object).getParents()) {
+            pending.push(parent);
+          }
+        }
+      }
+    }
+    return pooled;
+  }
+
+  private synchronized void register(File gitDir) throws IOException {
+    FileLock lock = lockClones();
+    try {
+      Set<String> clones = readClones();
+      if (clones.add(gitDir.getAbsolutePath())) {
+        writeClones(clones);
+      }
+    } finally {
+      lock.release();
+      lock.channel().close();
+    }
+  }
+
+  /**
+   * Locks the list of workspaces against other processes sharing the pool. Threads of this
+   * process synchronize on the pool instead, a second lock of the same file would fail.
+   *
+   * @return Lock to release, along with its channel
+   */
+  private FileLock lockClones() throws IOException {
+    FileChannel channel = FileChannel.open(new File(dir, "dsdn-clones.lock").toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try {
+      return channel.lock();
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private synchronized Set<String> readClones() throws IOException {
+    Set<String> clones = new LinkedHashSet<>();
+    if (clonesFile.isFile()) {
+      for (String line : Files.readAllLines(clonesFile.toPath(), StandardCharsets.UTF_8)) {
+        if (!line.trim().isEmpty()) {
+          clones.add(line.trim());
+        }
+      }
+    }
+    return clones;
+  }
+
+  private synchronized void writeClones(Set<String> clones) throws IOException {
+    Files.write(clonesFile.toPath(), clones, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return Prefix of the refs of a repository in the pool, ending with a slash
+   */
+  private static String getNamespace(String url) {
+    //components of ref names must not start with a dot
+    return PREFIX + MirrorCache.getKey(url).replace('.', '_') + "/";
+  }
+
+}
@@ -0,0 +1,46 @@
+package io.deki.dsdn.git;
+
+/**
+ * A repository whose tracked branch moved since it was last built, see {@link ChangeDetector}.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class RemoteChange {
+
+  private final SyncTarget target;
+
+  private final String previous;
+
+  private final String current;
+
+  public RemoteChange(SyncTarget target, String previous, String current) {
+    this.target = target;
+    this.previous = previous;
+    this.current = current;
+  }
+
+  public SyncTarget getTarget() {
+    return target;
+  }
+
+  /**
+   * @return Commit that was last built, null if the repository has never been built
+   */
+  public String getPrevious() {
+    return previous;
+  }
+
+  /**
+   * @return Commit the tracked branch points to now
+   */
+  public String getCurrent() {
+    return current;
+  }
+
+  @Override
+  public String toString() {
+    return target.getUrl() + ": " + (previous == null ? "new" : previous) + " -> " + current;
+  }
+
+}
@@ -0,0 +1,383 @@
+package io.deki.dsdn.git;
+
+import io.deki.dsdn.workspace.WorkspaceManager;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.transport.URIish;
+
+/**
+ * Syncs many repositories into their workspaces at once. Workspaces that already hold a clone of
+ * their repository are fetched and reset to the new commit, all others are cloned from scratch.
+ *
+ * <p>Every remote host gets only a few connections at a time, so a whole catalog on one GitLab
+ * instance doesn't run into its rate limits, while repositories on other hosts proceed. Transient
+ * failures, like a dropped connection, are retried with exponential backoff. A repository waiting
+ * for its retry doesn't occupy a connection.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class RepositorySync implements AutoCloseable {
+
+  private static final AtomicInteger THREADS = new AtomicInteger();
+
+  private final int maxPerHost;
+
+  private int maxAttempts = 4;
+
+  private long backoff = 1000;
+
+  private long maxBackoff = 60_000;
+
+  private MirrorCache mirrors;
+
+  private ObjectPool pool;
+
+  private final ExecutorService workers;
+
+  /**
+   * Schedules retries once their backoff expired
+   */
+  private final ScheduledExecutorService timer;
+
+  /**
+   * Syncs waiting for a connection, per host. Guarded by this.
+   */
+  private final Map<String, Queue<Sync>> pending = new HashMap<>();
+
+  /**
+   * Number of running syncs, per host. Guarded by this.
+   */
+  private final Map<String, Integer> running = new HashMap<>();
+
+  /**
+   * @param maxPerHost Number of repositories synced at once from the same host
+   * @param maxTotal   Number of repositories synced at once overall
+   */
+  public RepositorySync(int maxPerHost, int maxTotal) {
+    this.maxPerHost = maxPerHost;
+    this.workers = Executors.newFixedThreadPool(maxTotal, daemon("DSDN Sync"));
+    this.timer = Executors.newSingleThreadScheduledExecutor(daemon("DSDN Sync Timer"));
+  }
+
+  /**
+   * @param maxAttempts Attempts per repository before it's reported as failed, at least 1
+   * @param backoff     Milliseconds to wait before the first retry, doubled for every further one
+   * @param maxBackoff  Upper limit of the wait between two attempts
+   * @return This sync
+   */
+  public RepositorySync withRetries(int maxAttempts, long backoff, long maxBackoff) {
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.backoff = backoff;
+    this.maxBackoff = maxBackoff;
+    return this;
+  }
+
+  /**
+   * Syncs through bare mirrors, see {@link MirrorCache}.
+   *
+   * @param mirrors Cache of the mirrors, null to sync straight from the remotes
+   * @return This sync
+   */
+  public RepositorySync withMirrorCache(MirrorCache mirrors) {
+    this.mirrors = mirrors;
+    return this;
+  }
+
+  /**
+   * Syncs through a shared object pool, see {@link ObjectPool}. Takes precedence over mirrors.
+   *
+   * @param pool Object pool the workspaces reference, null to give every workspace its own objects
+   * @return This sync
+   */
+  public RepositorySync withObjectPool(ObjectPool pool) {
+    this.pool = pool;
+    return this;
+  }
+
+  /**
+   * Syncs repositories into their workspaces.
+   *
+   * @param targets  Repositories and their workspaces, no two may share a workspace
+   * @param progress Receives the result of every repository as soon as it's done, from the sync
+   *                 threads, can be null
+   * @return Future of the results, in the order of the targets. Failed repositories are part of
+   * the results, the future itself never fails.
+   */
+  public CompletableFuture<List<SyncResult>> sync(List<SyncTarget> targets,
+      Consumer<SyncResult> progress) {
+    List<CompletableFuture<SyncResult>> futures = new ArrayList<>();
+    for (SyncTarget target : targets) {
+      Sync sync = new Sync(target);
+      //the results are complete only once progress has been reported for all of them
+      futures.add(progress == null ? sync.future : sync.future.thenApply(result -> {
+        try {
+          progress.accept(result);
+        } catch (RuntimeException e) {
+          e.printStackTrace();
+        }
+        return result;
+      }));
+      enqueue(sync);
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+      List<SyncResult> results = new ArrayList<>();
+      futures.forEach(future -> results.add(future.join()));
+      return results;
+    });
+  }
+
+  private synchronized void enqueue(Sync sync) {
+    pending.computeIfAbsent(sync.host, host -> new ArrayDeque<>()).add(sync);
+    dispatch(sync.host);
+  }
+
+  /**
+   * Starts waiting syncs of a host while it has connections left.
+   */
+  private synchronized void dispatch(String host) {
+    Queue<Sync> queue = pending.get(host);
+    while (queue != null && !queue.isEmpty() && running.getOrDefault(host, 0) < maxPerHost) {
+      Sync sync = queue.poll();
+      try {
+        workers.execute(sync);
+      } catch (RejectedExecutionException e) {
+        //closed, syncs and retries that are still waiting never get a thread
+        sync.complete(SyncResult.Status.FAILED, null, e);
+        continue;
+      }
+      running.merge(host, 1, Integer::sum);
+    }
+    if (queue != null && queue.isEmpty()) {
+      pending.remove(host);
+    }
+  }
+
+  private synchronized void release(String host) {
+    if (running.merge(host, -1, Integer::sum) <= 0) {
+      running.remove(host);
+    }
+    dispatch(host);
+  }
+
+  /**
+   * Stops accepting syncs and kills the threads once the running syncs finished. Syncs that are
+   * still waiting for a connection or a retry are reported as failed.
+   */
+  @Override
+  public void close() {
+    workers.shutdown();
+    timer.shutdown();
+  }
+
+  /**
+   * Clones the repository if the workspace doesn't hold a clone of it, otherwise fetches and
+   * resets the workspace.
+   *
+   * @return Whether the workspace was cloned or updated
+   */
+  private SyncResult.Status sync(SyncTarget target) throws IOException, GitAPIException {
+    File dir = target.getDir();
+    if (target.getOptions().getPaths().isEmpty() && isClone(dir, target.getUrl())
+        && update(target)) {
+      return SyncResult.Status.UPDATED;
+    }
+    WorkspaceManager.getDefault().prepare(dir);
+    if (pool != null) {
+      pool.checkout(target.getUrl(), dir, target.getCredentials(), target.getOptions());
+    } else if (mirrors != null) {
+      mirrors.checkout(target.getUrl(), dir, target.getCredentials(), target.getOptions());
+    } else {
+      Cloner.clone(target.getUrl(), dir, target.getCredentials(), target.getOptions());
+    }
+    return SyncResult.Status.CLONED;
+  }
+
+  /**
+   * Fetches the workspace and resets it to the tip of its branch, or the requested commit.
+   * Uncommitted changes and untracked files, like build output, are removed.
+   *
+   * @return Whether the workspace was updated, false if the commit to check out can't be found
+   */
+  private boolean update(SyncTarget target) throws IOException, GitAPIException {
+    CloneOptions options = target.getOptions();
+    try (Git git = Git.open(target.getDir())) {
+      Repository repository = git.getRepository();
+      String branch = options.getBranch();
+      if (branch == null && repository.getFullBranch() != null
+          && repository.getFullBranch().startsWith(Constants.R_HEADS)) {
+        branch = repository.getBranch();
+      }
+      String refSpec = "+" + Constants.R_HEADS + (options.getBranch() == null ? "*" : branch)
+          + ":" + Constants.R_REMOTES + "origin/" + (options.getBranch() == null ? "*" : branch);
+      if (pool != null) {
+        pool.fetch(git, target.getUrl(), target.getCredentials(), options);
+      } else {
+        FetchCommand fetch = git.fetch().setRefSpecs(refSpec).setRemoveDeletedRefs(true)
+            .setTagOpt(options.isTags() ? TagOpt.FETCH_TAGS : TagOpt.NO_TAGS);
+        if (mirrors != null) {
+          mirrors.read(target.getUrl(), target.getCredentials(),
+              mirror -> fetch.setRemote(mirror.toURI().toString()).call());
+        } else {
+          fetch.setRemote("origin").setCredentialsProvider(target.getCredentials()).call();
+        }
+      }
+
+      ObjectId id = options.getCommit() != null
+          ? repository.resolve(options.getCommit() + "^{commit}")
+          : branch == null ? null : repository.resolve(Constants.R_REMOTES + "origin/" + branch);
+      if (id == null) {
+        return false;
+      }
+      if (options.getCommit() != null) {
+        RefUpdate head = repository.updateRef(Constants.HEAD, true);
+        head.setNewObjectId(repository.resolve(Constants.HEAD));
+        head.forceUpdate();
+      } else if (!(Constants.R_HEADS + branch).equals(repository.getFullBranch())) {
+        RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+        update.setNewObjectId(repository.resolve(Constants.HEAD));
+        update.forceUpdate();
+        repository.updateRef(Constants.HEAD).link(Constants.R_HEADS + branch);
+      }
+      git.reset().setMode(ResetCommand.ResetType.HARD).setRef(id.name()).call();
+      git.clean().setCleanDirectories(true).setIgnore(false).setForce(true).call();
+      return true;
+    }
+  }
+
+  /**
+   * @return Whether the directory holds a clone of the repository
+   */
+  private static boolean isClone(File dir, String url) {
+    if (!new File(dir, Constants.DOT_GIT).isDirectory()) {
+      return false;
+    }
+    try (Git git = Git.open(dir)) {
+      String origin = git.getRepository().getConfig().getString("remote", "origin", "url");
+      //jgit normalizes some urls when cloning
+      return origin != null && new URIish(url).equals(new URIish(origin));
+    } catch (IOException | URISyntaxException e) {
+      return false;
+    }
+  }
+
+  private static String getCommit(File dir) {
+    try (Git git = Git.open(dir)) {
+      ObjectId head = git.getRepository().resolve(Constants.HEAD);
+      return head == null ? null : head.name();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Whether a failure may go away on its own, like a dropped connection or an overloaded server.
+   * Rejected credentials and missing repositories don't.
+   */
+  private static boolean isTransient(Exception e) {
+    if (!(e instanceof TransportException)) {
+      return false;
+    }
+    String message = String.valueOf(e.getMessage()).toLowerCase();
+    return !message.contains("not authorized") && !message.contains("authentication")
+        && !message.contains("not found");
+  }
+
+  private static String getHost(String url) {
+    try {
+      String host = URI.create(url).getHost();
+      return host == null ? url : host.toLowerCase();
+    } catch (IllegalArgumentException e) {
+      return url;
+    }
+  }
+
+  private static ThreadFactory daemon(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + " " + THREADS.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * A repository being synced, across all of its attempts.
+   */
+  private class Sync implements Runnable {
+
+    private final SyncTarget target;
+    private final String host;
+    private final long start = System.currentTimeMillis();
+    private final CompletableFuture<SyncResult> future = new CompletableFuture<>();
+    private int attempts;
+
+    private Sync(SyncTarget target) {
+      this.target = target;
+      this.host = getHost(target.getUrl());
+    }
+
+    @Override
+    public void run() {
+      attempts++;
+      SyncResult.Status status = null;
+      Exception error = null;
+      try {
+        status = sync(target);
+      } catch (IOException | GitAPIException | RuntimeException e) {
+        error = e;
+      } finally {
+        release(host);
+      }
+      if (status != null) {
+        complete(status, getCommit(target.getDir()), null);
+      } else if (attempts < maxAttempts && isTransient(error)) {
+        long delay = Math.min(maxBackoff, backoff << Math.min(attempts - 1, 20));
+        //jitter, so repositories that failed together don't retry together
+        delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        try {
+          timer.schedule(() -> enqueue(this), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+          complete(SyncResult.Status.FAILED, null, error);
+        }
+      } else {
+        complete(SyncResult.Status.FAILED, null, error);
+      }
+    }
+
+    private void complete(SyncResult.Status status, String commit, Exception error) {
+      future.complete(new SyncResult(target, status, commit, attempts,
+          System.currentTimeMillis() - start, error));
+    }
+
+  }
+
+}
@@ -0,0 +1,91 @@
+package io.deki.dsdn.git;
+
+/**
+ * Outcome of syncing a single repository, see {@link RepositorySync}.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class SyncResult {
+
+  public enum Status {
+    /**
+     * The workspace was cloned from scratch
+     */
+    CLONED,
+    /**
+     * The existing clone in the workspace was fetched and reset to the new commit
+     */
+    UPDATED,
+    FAILED
+  }
+
+  private final SyncTarget target;
+
+  private final Status status;
+
+  private final String commit;
+
+  private final int attempts;
+
+  private final long duration;
+
+  private final Exception error;
+
+  public SyncResult(SyncTarget target, Status status, String commit, int attempts, long duration,
+      Exception error) {
+    this.target = target;
+    this.status = status;
+    this.commit = commit;
+    this.attempts = attempts;
+    this.duration = duration;
+    this.error = error;
+  }
+
+  public SyncTarget getTarget() {
+    return target;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public boolean isSuccess() {
+    return status != Status.FAILED;
+  }
+
+  /**
+   * @return Hash of the commit checked out in the workspace, null if the sync failed
+   */
+  public String getCommit() {
+    return commit;
+  }
+
+  /**
+   * @return Number of attempts, more than one if transient failures were retried
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+
+  /**
+   * @return Milliseconds from the first attempt until the result, including backoff
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  /**
+   * @return Error of the last attempt, null if the sync succeeded
+   */
+  public Exception getError() {
+    return error;
+  }
+
+  @Override
+  public String toString() {
+    return target.getUrl() + ": " + status + (commit != null ? " " + commit : "")
+        + (error != null ? " " + error.getMessage() : "") + " after " + attempts + " attempt(s)";
+  }
+
+}
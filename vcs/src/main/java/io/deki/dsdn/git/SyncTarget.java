@@ -0,0 +1,69 @@
+package io.deki.dsdn.git;
+
+import java.io.File;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+
+/**
+ * A repository to sync into a workspace, see {@link RepositorySync}.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class SyncTarget {
+
+  private final String url;
+
+  private final File dir;
+
+  private CredentialsProvider credentials;
+
+  private CloneOptions options = new CloneOptions();
+
+  /**
+   * @param url HTTP(S) url of the repository. Should end with .git
+   * @param dir Workspace of the repository, cloned if it's not a clone of the repository yet
+   */
+  public SyncTarget(String url, File dir) {
+    this.url = url;
+    this.dir = dir;
+  }
+
+  /**
+   * Authenticates with username and password.
+   *
+   * @param username Username to use for authentication
+   * @param password Password to use for authentication
+   * @return This target
+   */
+  public SyncTarget withCredentials(String username, String password) {
+    this.credentials = new UsernamePasswordCredentialsProvider(username, password);
+    return this;
+  }
+
+  /**
+   * @param options Branch, commit and paths to sync
+   * @return This target
+   */
+  public SyncTarget withOptions(CloneOptions options) {
+    this.options = options;
+    return this;
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  public File getDir() {
+    return dir;
+  }
+
+  public CredentialsProvider getCredentials() {
+    return credentials;
+  }
+
+  public CloneOptions getOptions() {
+    return options;
+  }
+
+}
@@ -12,13 +12,18 @@ import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 
 public class GitLabAPI {
@@ -33,6 +38,29 @@ public class GitLabAPI {
    */
   private static String accessToken;
 
+  /**
+   * Milliseconds a pooled connection may be idle before it's checked before reuse
+   */
+  private static final int IDLE_VALIDATION = 2000;
+
+  /**
+   * Milliseconds a pooled connection may be idle before it's closed
+   */
+  private static final long IDLE_TIMEOUT = 30_000;
+
+  private static int maxConnections = 20;
+
+  private static int maxConnectionsPerRoute = 10;
+
+  private static int connectTimeout = 10_000;
+
+  private static int socketTimeout = 30_000;
+
+  /**
+   * Client shared by all requests, keeps connections to GitLab alive
+   */
+  private static volatile CloseableHttpClient client;
+
   /**
    * Sets the access token to be used by GitLab for all requests that require authentication.
    *
@@ -42,6 +70,33 @@ public class GitLabAPI {
     GitLabAPI.accessToken = accessToken;
   }
 
+  /**
+   * Limits the connections the shared client keeps open. Defaults to 20 in total and 10 per host.
+   * Should be called before sending requests, requests that are being sent fail.
+   *
+   * @param total    Connections open at once to all hosts
+   * @param perRoute Connections open at once to the same host
+   */
+  public static synchronized void setConnectionLimits(int total, int perRoute) {
+    maxConnections = total;
+    maxConnectionsPerRoute = perRoute;
+    resetClient();
+  }
+
+  /**
+   * Sets the timeouts of all requests. Defaults to 10 seconds to connect and 30 seconds between
+   * two packets of a response. Should be called before sending requests, requests that are being
+   * sent fail.
+   *
+   * @param connect Milliseconds to wait for a connection, from the pool or a new one
+   * @param socket  Milliseconds to wait for data of a response
+   */
+  public static synchronized void setTimeouts(int connect, int socket) {
+    connectTimeout = connect;
+    socketTimeout = socket;
+    resetClient();
+  }
+
   /**
    * Fetches a list of groups from GitLab. Will return accessible groups if authenticated, or a list
    * of public groups if not authenticated.
@@ -51,7 +106,7 @@ public class GitLabAPI {
   public static List<Group> getGroups() {
     try {
       String url = BASE_URL + "groups";
-      return extractGroups(sendAuthenticated(new HttpGet(url)));
+      return sendAuthenticated(new HttpGet(url), GitLabAPI::extractGroups);
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -68,7 +123,7 @@ public class GitLabAPI {
   public static List<Group> getSubgroups(String groupId) {
     try {
       String url = BASE_URL + "groups/" + groupId + "/subgroups";
-      return extractGroups(sendAuthenticated(new HttpGet(url)));
+      return sendAuthenticated(new HttpGet(url), GitLabAPI::extractGroups);
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -85,7 +140,7 @@ public class GitLabAPI {
   public static List<Project> getProjects(String groupId) {
     try {
       String url = BASE_URL + "groups/" + groupId + "/projects";
-      return extractProjects(sendAuthenticated(new HttpGet(url)));
+      return sendAuthenticated(new HttpGet(url), GitLabAPI::extractProjects);
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -102,7 +157,7 @@ public class GitLabAPI {
   public static List<Member> getGroupMembers(String groupId) {
     try {
       String url = BASE_URL + "groups/" + groupId + "/members";
-      return extractMembers(sendAuthenticated(new HttpGet(url)));
+      return sendAuthenticated(new HttpGet(url), GitLabAPI::extractMembers);
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -119,7 +174,7 @@ public class GitLabAPI {
   public static List<Member> getProjectMembers(String projectId) {
     try {
       String url = BASE_URL + "projects/" + projectId + "/members";
-      return extractMembers(sendAuthenticated(new HttpGet(url)));
+      return sendAuthenticated(new HttpGet(url), GitLabAPI::extractMembers);
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -141,8 +196,7 @@ public class GitLabAPI {
     NewSubgroup group = new NewSubgroup(name, path, parentId);
     setPostJson(post, gson.toJson(group));
     try {
-      HttpResponse response = sendAuthenticated(post);
-      return response.getStatusLine().getStatusCode() == 201;
+      return sendAuthenticated(post, response -> response.getStatusLine().getStatusCode() == 201);
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -192,8 +246,7 @@ public class GitLabAPI {
     AddMember member = new AddMember(memberId, accessLevel);
     setPostJson(post, gson.toJson(member));
     try {
-      HttpResponse response = sendAuthenticated(post);
-      return response.getStatusLine().getStatusCode() == 201;
+      return sendAuthenticated(post, response -> response.getStatusLine().getStatusCode() == 201);
     } catch (Exception e) {
       e.printStackTrace();
     }
@@ -258,19 +311,22 @@ public class GitLabAPI {
   }
 
   /**
-   * Appends a GitLab authentication header to a request before sending it with a new minimal
-   * HttpClient created with createClient().
+   * Appends a GitLab authentication header to a request before sending it with the shared client.
+   * The response is handed to the handler, then its entity is consumed, so the connection goes
+   * back to the pool even if the handler doesn't read it.
    *
    * @param request Request to send to server
-   * @return Response entity returned by server
+   * @param handler Extracts the result from the response
+   * @return Result extracted by the handler
    * @throws Exception If the GitLab access token hasn't been set with setAccessToken()
    */
-  private static HttpResponse sendAuthenticated(HttpUriRequest request) throws Exception {
+  private static <T> T sendAuthenticated(HttpUriRequest request, ResponseHandler<T> handler)
+      throws Exception {
     if (accessToken == null) {
       throw new Exception("GitLab access token not set");
     }
     request.addHeader("PRIVATE-TOKEN", accessToken);
-    return createClient().execute(request);
+    return getClient().execute(request, handler);
   }
 
   /**
@@ -286,12 +342,60 @@ public class GitLabAPI {
   }
 
   /**
-   * Creates a minimal HttpClient.
+   * @return Client shared by all requests, created on first use
+   */
+  private static CloseableHttpClient getClient() {
+    CloseableHttpClient client = GitLabAPI.client;
+    if (client == null) {
+      synchronized (GitLabAPI.class) {
+        if (GitLabAPI.client == null) {
+          GitLabAPI.client = createClient();
+        }
+        client = GitLabAPI.client;
+      }
+    }
+    return client;
+  }
+
+  /**
+   * Replaces the shared client with one built from the current settings. The old client is
+   * closed, requests it's still sending fail.
+   */
+  private static synchronized void resetClient() {
+    CloseableHttpClient old = client;
+    client = null;
+    if (old != null) {
+      try {
+        old.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Creates an HttpClient that keeps connections alive in a pool. Idle connections are validated
+   * before they're reused and closed after a while.
    *
-   * @return
+   * @return Pooled client
    */
-  private static HttpClient createClient() {
-    return HttpClients.createMinimal();
+  private static CloseableHttpClient createClient() {
+    PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+    connections.setMaxTotal(maxConnections);
+    connections.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    connections.setValidateAfterInactivity(IDLE_VALIDATION);
+    RequestConfig config = RequestConfig.custom()
+        .setConnectTimeout(connectTimeout)
+        .setSocketTimeout(socketTimeout)
+        .setConnectionRequestTimeout(connectTimeout)
+        .build();
+    return HttpClients.custom()
+        .setConnectionManager(connections)
+        .setDefaultRequestConfig(config)
+        .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+        .evictExpiredConnections()
+        .evictIdleConnections(IDLE_TIMEOUT, TimeUnit.MILLISECONDS)
+        .build();
   }
 
 }
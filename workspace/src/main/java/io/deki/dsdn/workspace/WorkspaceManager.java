@@ -0,0 +1,303 @@
+package io.deki.dsdn.workspace;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cleans workspaces without waiting for their deletion. A workspace is renamed out of the way,
+ * which is instant, and the renamed tree is deleted in the background by a bounded number of
+ * threads, so deleting many large checkouts doesn't saturate the disk. The path of the workspace
+ * can be reused right away.
+ *
+ * <p>Renamed workspaces stay next to the original as hidden directories named
+ * .&lt;name&gt;.dsdn-trash-&lt;time&gt;-&lt;pid&gt;-&lt;n&gt; until they're deleted. Trash left
+ * behind by a process that is gone, or that is older than a day, is deleted the next time a
+ * workspace in the same directory is cleaned. Trash of other running processes is left to them.
+ *
+ * @author Deki on 17.10.2026
+ * @project dsdn
+ **/
+public class WorkspaceManager implements AutoCloseable {
+
+  private static final String TRASH = ".dsdn-trash-";
+
+  /**
+   * Milliseconds after which trash is deleted even if the process that left it is still running,
+   * and after which a directory is checked for trash again
+   */
+  private static final long TRASH_EXPIRY = TimeUnit.DAYS.toMillis(1);
+
+  private static final AtomicInteger THREADS = new AtomicInteger();
+
+  /**
+   * Id of this process, part of the name of its trash, -1 if it can't be determined
+   */
+  private static final long PID = getPid();
+
+  private static volatile WorkspaceManager defaultManager;
+
+  private final ForkJoinPool deleters;
+
+  private final AtomicLong counter = new AtomicLong();
+
+  /**
+   * Number of renamed workspaces that haven't been deleted yet
+   */
+  private final AtomicInteger pending = new AtomicInteger();
+
+  /**
+   * Directories that have been checked for leftover trash, with the time of the last check
+   */
+  private final Map<File, Long> swept = new ConcurrentHashMap<>();
+
+  /**
+   * @param parallelism Number of files and directories deleted at once
+   */
+  public WorkspaceManager(int parallelism) {
+    this.deleters = new ForkJoinPool(parallelism, pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("DSDN Delete " + THREADS.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    }, null, false);
+  }
+
+  /**
+   * @return Manager shared by VCS and Compiler, deleting with half of the available cores
+   */
+  public static WorkspaceManager getDefault() {
+    WorkspaceManager manager = defaultManager;
+    if (manager == null) {
+      synchronized (WorkspaceManager.class) {
+        if (defaultManager == null) {
+          defaultManager =
+              new WorkspaceManager(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        }
+        manager = defaultManager;
+      }
+    }
+    return manager;
+  }
+
+  /**
+   * Replaces the manager shared by VCS and Compiler, like one with fewer threads for slow disks.
+   *
+   * @param manager Manager to share
+   */
+  public static void setDefault(WorkspaceManager manager) {
+    defaultManager = manager;
+  }
+
+  /**
+   * Removes a file or directory. Directories are renamed and deleted in the background, the path
+   * is free once this returns. Falls back to deleting in place if the directory can't be renamed.
+   *
+   * @param dir Directory to remove, nothing happens if it doesn't exist
+   */
+  public void clean(File dir) {
+    Path path = dir.getAbsoluteFile().toPath();
+    if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+      return;
+    }
+    if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+      delete(path);
+      return;
+    }
+    sweep(path.getParent());
+    Path trash = path.resolveSibling(
+        "." + path.getFileName() + TRASH + System.currentTimeMillis() + "-" + PID + "-"
+            + counter.incrementAndGet());
+    try {
+      Files.move(path, trash, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      trash = path;
+    } catch (IOException e) {
+      e.printStackTrace();
+      trash = path;
+    }
+    if (trash == path) {
+      //can't move it out of the way, the caller has to wait
+      new Delete(path).invoke();
+    } else {
+      schedule(trash);
+    }
+  }
+
+  /**
+   * Recycles the path of a workspace: its old contents are cleaned, see {@link #clean(File)}, and
+   * an empty directory takes its place.
+   *
+   * @param dir Directory of the workspace
+   * @return The directory, empty
+   */
+  public File prepare(File dir) {
+    clean(dir);
+    dir.mkdirs();
+    return dir;
+  }
+
+  /**
+   * @return Number of cleaned directories that haven't been deleted yet
+   */
+  public int getPending() {
+    return pending.get();
+  }
+
+  /**
+   * Waits until all cleaned directories have been deleted.
+   *
+   * @param timeout Milliseconds to wait at most
+   * @return Whether or not everything has been deleted
+   */
+  public boolean awaitIdle(long timeout) {
+    return deleters.awaitQuiescence(timeout, TimeUnit.MILLISECONDS) && pending.get() == 0;
+  }
+
+  /**
+   * Stops the threads, directories that haven't been deleted yet are swept up by the next
+   * manager cleaning a workspace next to them.
+   */
+  @Override
+  public void close() {
+    deleters.shutdown();
+  }
+
+  /**
+   * Deletes trash other processes left behind in a directory, at most once a day per directory.
+   * Trash of running processes is only taken once it expired, they're still deleting it.
+   */
+  private void sweep(Path parent) {
+    if (parent == null) {
+      return;
+    }
+    File dir = parent.toFile();
+    long now = System.currentTimeMillis();
+    Long last = swept.get(dir);
+    if (last != null && now - last < TRASH_EXPIRY) {
+      return;
+    }
+    //only one thread sweeps a directory at a time
+    boolean claimed = last == null
+        ? swept.putIfAbsent(dir, now) == null : swept.replace(dir, last, now);
+    if (!claimed) {
+      return;
+    }
+    try (DirectoryStream<Path> children = Files.newDirectoryStream(parent, ".*" + TRASH + "*")) {
+      for (Path child : children) {
+        if (isAbandoned(child.getFileName().toString(), now)) {
+          schedule(child);
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * @param name Name of the trash, .&lt;name&gt;.dsdn-trash-&lt;time&gt;-&lt;pid&gt;-&lt;n&gt;
+   * @param now  Current time in milliseconds
+   * @return Whether or not nobody is deleting the trash anymore
+   */
+  private static boolean isAbandoned(String name, long now) {
+    String[] parts = name.substring(name.lastIndexOf(TRASH) + TRASH.length()).split("-");
+    try {
+      if (now - Long.parseLong(parts[0]) > TRASH_EXPIRY) {
+        return true;
+      }
+      //trash of older versions has no pid, it's taken once it expired
+      if (parts.length < 3) {
+        return false;
+      }
+      long pid = Long.parseLong(parts[1]);
+      //processes can only be looked up through /proc, elsewhere the trash has to expire
+      return pid != PID && pid > 0 && new File("/proc/self").isDirectory()
+          && !new File("/proc/" + pid).exists();
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static long getPid() {
+    //name of the runtime is pid@host on every common JVM
+    String name = ManagementFactory.getRuntimeMXBean().getName();
+    try {
+      return Long.parseLong(name.substring(0, name.indexOf('@')));
+    } catch (RuntimeException e) {
+      return -1;
+    }
+  }
+
+  private void schedule(Path trash) {
+    pending.incrementAndGet();
+    deleters.execute(() -> {
+      try {
+        new Delete(trash).invoke();
+      } finally {
+        pending.decrementAndGet();
+      }
+    });
+  }
+
+  private static void delete(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      //read-only files can't be deleted on every platform
+      if (!path.toFile().setWritable(true) || !path.toFile().delete()) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  /**
+   * Deletes a directory tree, subdirectories in parallel.
+   */
+  private static class Delete extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Path dir;
+
+    private Delete(Path dir) {
+      this.dir = dir;
+    }
+
+    @Override
+    protected void compute() {
+      List<Delete> subdirectories = new ArrayList<>();
+      try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+        for (Path child : children) {
+          if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+            subdirectories.add(new Delete(child));
+          } else {
+            delete(child);
+          }
+        }
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      invokeAll(subdirectories);
+      delete(dir);
+    }
+
+  }
+
+}